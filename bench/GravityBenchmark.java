@@ -0,0 +1,83 @@
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Compares the Barnes-Hut gravity solver against the brute-force reference.
+ *
+ * Bodies are placed at random in the default window around a star, and the
+ * accelerations from each solver are timed. Barnes-Hut accuracy is reported
+ * as the RMS error relative to the RMS brute-force acceleration.
+ *
+ * Usage: java -cp out GravityBenchmark [maxBodies]
+ */
+public class GravityBenchmark {
+
+    static final double[] THETAS = {0.3, 0.5, 0.8};
+
+    // Brute force is O(n^2), so it is skipped above this size
+    static final int MAX_BRUTE = 20000;
+
+    static final int RUNS = 5;
+
+    static Gravity make(String solver, double theta) {
+        Properties prop = new Properties();
+        prop.setProperty("gravity", "nbody");
+        prop.setProperty("gravity_solver", solver);
+        prop.setProperty("theta", Double.toString(theta));
+        return new Gravity(prop, 10);
+    }
+
+    /**
+     * Warm up and time g over the store, returning mean milliseconds.
+     */
+    static double time(Gravity g, BodyStore store) {
+        for (int i = 0; i < 2; i++) {
+            g.compute(store.iterator(), store.size());
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            g.compute(store.iterator(), store.size());
+        }
+        return (System.nanoTime() - start) / 1e6 / RUNS;
+    }
+
+    public static void main(String[] args) {
+        int maxBodies = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        System.out.printf("%8s %12s %8s %12s %12s%n", "bodies", "solver", "theta", "ms/step", "rel. error");
+        for (int n = 1000; n <= maxBodies; n *= 10) {
+            Random r = new Random(n);
+            BodyStore store = new BodyStore(n);
+            store.add(512, 384, 0, 0, 30, 2E29, true);
+            for (int i = 1; i < n; i++) {
+                store.add(r.nextInt(1024), r.nextInt(768), 0, 0, 10, 1E21, false);
+            }
+
+            Gravity brute = null;
+            double norm = 0;
+            if (n <= MAX_BRUTE) {
+                brute = make("brute", 0);
+                double ms = time(brute, store);
+                for (int i = 0; i < n; i++) {
+                    norm += brute.getAx(i) * brute.getAx(i) + brute.getAy(i) * brute.getAy(i);
+                }
+                System.out.printf("%8d %12s %8s %12.2f %12s%n", n, "brute", "-", ms, "-");
+            }
+
+            for (double theta : THETAS) {
+                Gravity bh = make("barneshut", theta);
+                double ms = time(bh, store);
+                String err = "-";
+                if (brute != null) {
+                    double sum = 0;
+                    for (int i = 0; i < n; i++) {
+                        double dx = bh.getAx(i) - brute.getAx(i);
+                        double dy = bh.getAy(i) - brute.getAy(i);
+                        sum += dx * dx + dy * dy;
+                    }
+                    err = String.format("%.2e", Math.sqrt(sum / norm));
+                }
+                System.out.printf("%8d %12s %8.1f %12.2f %12s%n", n, "barneshut", theta, ms, err);
+            }
+        }
+    }
+}
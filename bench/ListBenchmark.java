@@ -0,0 +1,202 @@
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Benchmarks for the List implementations under the simulation workload.
+ *
+ * The simulation benchmark replays actionPerformed's per-tick pattern
+ * (spawn at gen_x/gen_y, move every body, cull off-screen bodies) through
+ * SimulationEngine for each list type. The micro benchmarks time add,
+ * add(index), get, get at consecutive indices, remove, FIFO (append at the tail, remove at the head),
+ * culling a tenth of the list with removeIf (refilled with addAll) and
+ * iteration at sizes from 10 up to maxSize.
+ *
+ * Each measurement is run a few times untimed to let the JIT warm up, then
+ * timed over several runs; the mean time per operation is printed.
+ *
+ * Usage: java -cp out ListBenchmark [propfile] [maxSize]
+ */
+public class ListBenchmark {
+
+    static final String[] LISTS = {"arraylist", "single", "double", "dummyhead", "unrolled", "ring"};
+
+    static final int WARMUP_RUNS = 3;
+    static final int MEASURED_RUNS = 5;
+
+    // Indexed operations are capped so the linked lists finish at 1M
+    static final int MAX_INDEXED_OPS = 200;
+
+    // Consecutive gets are O(1) with a finger, so they can run longer
+    static final int MAX_SEQUENTIAL_OPS = 10000;
+
+    // Results are accumulated here so the JIT cannot drop the work
+    static long sink;
+
+    interface Op {
+        /**
+         * Run the operation once.
+         * @return number of operations performed
+         */
+        long run() throws Exception;
+    }
+
+    static List<Body> make(String name) {
+        if ("single".equals(name)) return new LinkedList<>();
+        if ("double".equals(name)) return new DoublyLinkedList<>();
+        if ("dummyhead".equals(name)) return new DummyHeadLinkedList<>();
+        if ("unrolled".equals(name)) return new UnrolledLinkedList<>();
+        if ("ring".equals(name)) return new ArrayDequeList<>();
+        return new ArrayList<>();
+    }
+
+    /**
+     * Warm up and time op, returning the mean nanoseconds per operation.
+     */
+    static double measure(Op op) throws Exception {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            op.run();
+        }
+        long totalOps = 0;
+        long totalNanos = 0;
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long start = System.nanoTime();
+            totalOps += op.run();
+            totalNanos += System.nanoTime() - start;
+        }
+        return (double) totalNanos / Math.max(1, totalOps);
+    }
+
+    static void simulation(Properties base, int ticks) throws Exception {
+        System.out.printf("%nSimulation: %d ticks, gen_x=%s gen_y=%s (ns/tick)%n",
+                ticks, base.getProperty("gen_x", "0.06"), base.getProperty("gen_y", "0.06"));
+        for (String name : LISTS) {
+            Properties prop = new Properties();
+            prop.putAll(base);
+            prop.setProperty("list", name);
+            double ns = measure(() -> {
+                SimulationEngine engine = new SimulationEngine(prop);
+                engine.step(ticks);
+                sink += engine.size();
+                return ticks;
+            });
+            System.out.printf("  %-10s %12.1f%n", name, ns);
+        }
+    }
+
+    static void micro(int maxSize) throws Exception {
+        Body body = new Body(0, 0, 1, 1, 10, false);
+        System.out.printf("%nMicro benchmarks (ns/op)%n");
+        System.out.printf("  %-10s %8s %10s %12s %12s %12s %12s %12s %10s %10s%n",
+                "list", "size", "add", "add(index)", "get", "get(i++)", "remove", "fifo",
+                "removeIf", "iterate");
+        for (int n = 10; n <= maxSize; n *= 10) {
+            final int size = n;
+            final int indexed = Math.min(size, MAX_INDEXED_OPS);
+            final int sequential = Math.min(size, MAX_SEQUENTIAL_OPS);
+            for (String name : LISTS) {
+                double add = measure(() -> {
+                    List<Body> l = make(name);
+                    for (int i = 0; i < size; i++) {
+                        l.add(body);
+                    }
+                    sink += l.size();
+                    return size;
+                });
+
+                List<Body> list = make(name);
+                for (int i = 0; i < size; i++) {
+                    list.add(body);
+                }
+                Random r = new Random(size);
+
+                double addIndex = measure(() -> {
+                    for (int i = 0; i < indexed; i++) {
+                        list.add(r.nextInt(list.size()), body);
+                    }
+                    // Restore the size so every run sees the same list
+                    for (int i = 0; i < indexed; i++) {
+                        list.remove(list.size() - 1);
+                    }
+                    return indexed;
+                });
+
+                double get = measure(() -> {
+                    for (int i = 0; i < indexed; i++) {
+                        sink += list.get(r.nextInt(size)).getX();
+                    }
+                    return indexed;
+                });
+
+                // A run of consecutive indices from a random start, wrapping at the end
+                double getNext = measure(() -> {
+                    int index = r.nextInt(size);
+                    for (int i = 0; i < sequential; i++) {
+                        sink += list.get(index).getX();
+                        if (++index == size) index = 0;
+                    }
+                    return sequential;
+                });
+
+                // Re-appending is O(1) for every list, so it barely affects the time
+                double remove = measure(() -> {
+                    for (int i = 0; i < indexed; i++) {
+                        list.remove(r.nextInt(list.size()));
+                    }
+                    for (int i = 0; i < indexed; i++) {
+                        list.add(body);
+                    }
+                    return indexed;
+                });
+
+                double fifo = measure(() -> {
+                    for (int i = 0; i < indexed; i++) {
+                        list.add(list.remove(0));
+                    }
+                    return indexed;
+                });
+
+                // Per element of the list: one pass removing every tenth body
+                List<Body> refill = make(name);
+                for (int i = 0; i < (size + 9) / 10; i++) {
+                    refill.add(body);
+                }
+                int[] seen = {0};
+                double removeIf = measure(() -> {
+                    seen[0] = 0;
+                    list.removeIf(b -> seen[0]++ % 10 == 0);
+                    list.addAll(refill);
+                    return size;
+                });
+
+                double iterate = measure(() -> {
+                    Iterator<Body> it = list.iterator();
+                    while (it.hasNext()) {
+                        sink += it.next().getX();
+                    }
+                    return size;
+                });
+
+                System.out.printf("  %-10s %8d %10.1f %12.1f %12.1f %12.1f %12.1f %12.1f %10.1f %10.1f%n",
+                        name, size, add, addIndex, get, getNext, remove, fifo, removeIf, iterate);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Properties base = args.length > 0 ? SimulationEngine.loadProperties(args[0]) : new Properties();
+        int maxSize = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+
+        simulation(base, 10000);
+
+        // Spawn on every tick to reach a larger steady-state population
+        Properties busy = new Properties();
+        busy.putAll(base);
+        busy.setProperty("gen_x", "1.0");
+        busy.setProperty("gen_y", "1.0");
+        simulation(busy, 10000);
+
+        micro(maxSize);
+        System.out.println();
+        System.out.println("(sink " + sink + ")");
+    }
+}
@@ -0,0 +1,109 @@
+import java.util.Random;
+
+/**
+ * Compares the scalar and vector move-and-cull kernels on BodyStore-style
+ * columns. Bodies start at random in the default window with velocities
+ * up to body_velocity, so a few percent leave the view and are culled
+ * each step, as in the simulation. Each timed step starts from the same
+ * copy of the columns, and the kernels' results are checked against each
+ * other.
+ *
+ * The vector kernel is only available when vector/ is compiled in:
+ *   javac --add-modules jdk.incubator.vector -d out src/*.java bench/*.java vector/*.java
+ *   java --add-modules jdk.incubator.vector -cp out StepBenchmark [maxBodies]
+ */
+public class StepBenchmark {
+
+    static final int W = 1024, H = 768, SIZE = 10, VELOCITY = 3;
+
+    // At least this many runs, and enough to step about 20M bodies, so
+    // the small sizes are measured after the JIT has compiled the kernels
+    static final int RUNS = 50;
+    static final int WORK = 20000000;
+
+    static double[] x, y, vx, vy, mass;
+    static int[] size;
+    static boolean[] star;
+    static double[] x0, y0, vx0, vy0, mass0;
+    static int[] size0;
+    static boolean[] star0;
+
+    static void reset(int n) {
+        System.arraycopy(x0, 0, x, 0, n);
+        System.arraycopy(y0, 0, y, 0, n);
+        System.arraycopy(vx0, 0, vx, 0, n);
+        System.arraycopy(vy0, 0, vy, 0, n);
+        System.arraycopy(size0, 0, size, 0, n);
+        System.arraycopy(mass0, 0, mass, 0, n);
+        System.arraycopy(star0, 0, star, 0, n);
+    }
+
+    static int step(StepKernel k, int n) {
+        return k.step(x, y, vx, vy, size, mass, star, 0, n, -SIZE, -SIZE, W + SIZE, H + SIZE);
+    }
+
+    /**
+     * Warm up and time one kernel, returning mean nanoseconds per body.
+     */
+    static double time(StepKernel k, int n) {
+        int runs = Math.max(RUNS, WORK / n);
+        long total = 0;
+        for (int r = -runs; r < runs; r++) {
+            reset(n);
+            long start = System.nanoTime();
+            step(k, n);
+            if (r >= 0) {
+                total += System.nanoTime() - start;
+            }
+        }
+        return (double) total / runs / n;
+    }
+
+    public static void main(String[] args) {
+        int maxBodies = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        StepKernel scalar = new ScalarStepKernel();
+        StepKernel vector = StepKernel.create("vector");
+        if (vector.getName().equals("scalar")) {
+            vector = null;
+        }
+        x = new double[maxBodies]; y = new double[maxBodies];
+        vx = new double[maxBodies]; vy = new double[maxBodies];
+        mass = new double[maxBodies]; size = new int[maxBodies]; star = new boolean[maxBodies];
+        x0 = new double[maxBodies]; y0 = new double[maxBodies];
+        vx0 = new double[maxBodies]; vy0 = new double[maxBodies];
+        mass0 = new double[maxBodies]; size0 = new int[maxBodies]; star0 = new boolean[maxBodies];
+        Random rnd = new Random(1);
+        for (int i = 0; i < maxBodies; i++) {
+            x0[i] = rnd.nextInt(W + 2 * SIZE) - SIZE;
+            y0[i] = rnd.nextInt(H + 2 * SIZE) - SIZE;
+            vx0[i] = rnd.nextInt(2 * VELOCITY + 1) - VELOCITY;
+            vy0[i] = rnd.nextInt(2 * VELOCITY + 1) - VELOCITY;
+            size0[i] = SIZE;
+            mass0[i] = 1E21;
+        }
+        star0[0] = true;
+
+        System.out.printf("%8s %8s %14s %14s %8s%n", "bodies", "culled", "scalar ns/body", "vector ns/body", "speedup");
+        for (int n = 1000; n <= maxBodies; n *= 10) {
+            reset(n);
+            int kept = step(scalar, n);
+            double s = time(scalar, n);
+            if (vector == null) {
+                System.out.printf("%8d %8d %14.3f %14s %8s%n", n, n - kept, s, "-", "-");
+                continue;
+            }
+            reset(n);
+            if (step(vector, n) != kept) {
+                throw new IllegalStateException("vector kernel kept a different number of bodies");
+            }
+            double[] xs = java.util.Arrays.copyOf(x, kept);
+            reset(n);
+            step(scalar, n);
+            if (!java.util.Arrays.equals(xs, java.util.Arrays.copyOf(x, kept))) {
+                throw new IllegalStateException("vector kernel moved bodies differently");
+            }
+            double v = time(vector, n);
+            System.out.printf("%8d %8d %14.3f %14.3f %7.2fx%n", n, n - kept, s, v, s / v);
+        }
+    }
+}
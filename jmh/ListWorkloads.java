@@ -0,0 +1,129 @@
+import java.util.Properties;
+import java.util.SplittableRandom;
+import java.util.function.LongSupplier;
+
+/**
+ * Workloads for the JMH benchmarks in jmh/massivemotion/jmh. JMH does not
+ * accept benchmark classes in the default package, and classes in a named
+ * package cannot refer to the simulation classes, so the benchmarks look
+ * these factories up by reflection once per trial and call the returned
+ * LongSupplier in the measured loop. Each supplier returns a value
+ * derived from its work for JMH to consume.
+ */
+public class ListWorkloads {
+
+    /**
+     * One simulation tick per call: spawn at gen_x/gen_y, move every body
+     * and cull the off-screen ones, with gravity and collisions off so the
+     * list is most of the work.
+     * @param list list property, including store and offheap
+     * @param gen spawn probability per tick, used for gen_x and gen_y
+     * @param seed spawn seed
+     * @return supplier that steps the engine and returns its body count
+     */
+    public static LongSupplier tick(String list, double gen, long seed) {
+        Properties prop = new Properties();
+        prop.setProperty("list", list);
+        prop.setProperty("gen_x", Double.toString(gen));
+        prop.setProperty("gen_y", Double.toString(gen));
+        prop.setProperty("seed", Long.toString(seed));
+        SimulationEngine engine = new SimulationEngine(prop);
+        return () -> {
+            engine.step();
+            return engine.size();
+        };
+    }
+
+    /**
+     * One list operation per call on a list of the given size. Operations
+     * that add or remove restore the size, so every call sees the same list:
+     * <ul>
+     * <li>fill: add size bodies to an empty list</li>
+     * <li>get: get at a random index</li>
+     * <li>getNext: get at the index after the previous call's</li>
+     * <li>addRemove: add(index) then remove(index) at the same random index</li>
+     * <li>fifo: add(remove(0))</li>
+     * <li>removeIf: remove every tenth body, then addAll them back</li>
+     * <li>iterate: visit every body with the iterator</li>
+     * </ul>
+     * @param list list name, as for ListBenchmark
+     * @param op operation name
+     * @param size list size
+     * @param seed seed for the random indices
+     * @return supplier that runs the operation once
+     */
+    public static LongSupplier listOp(String list, String op, int size, long seed) throws Exception {
+        Body body = new Body(0, 0, 1, 1, 10, false);
+        List<Body> l = ListBenchmark.make(list);
+        for (int i = 0; i < size; i++) {
+            l.add(body);
+        }
+        SplittableRandom r = new SplittableRandom(seed);
+        int[] index = {0};
+
+        if ("fill".equals(op)) {
+            return () -> {
+                List<Body> fresh = ListBenchmark.make(list);
+                for (int i = 0; i < size; i++) {
+                    fresh.add(body);
+                }
+                return fresh.size();
+            };
+        } else if ("get".equals(op)) {
+            return () -> get(l, r.nextInt(size));
+        } else if ("getNext".equals(op)) {
+            return () -> {
+                if (++index[0] == size) index[0] = 0;
+                return get(l, index[0]);
+            };
+        } else if ("addRemove".equals(op)) {
+            return () -> {
+                int i = r.nextInt(size + 1);
+                try {
+                    l.add(i, body);
+                    return l.remove(i).getX();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            };
+        } else if ("fifo".equals(op)) {
+            return () -> {
+                try {
+                    l.add(l.remove(0));
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+                return l.size();
+            };
+        } else if ("removeIf".equals(op)) {
+            List<Body> refill = ListBenchmark.make(list);
+            for (int i = 0; i < (size + 9) / 10; i++) {
+                refill.add(body);
+            }
+            return () -> {
+                index[0] = 0;
+                l.removeIf(b -> index[0]++ % 10 == 0);
+                l.addAll(refill);
+                return l.size();
+            };
+        } else if ("iterate".equals(op)) {
+            return () -> {
+                long sum = 0;
+                Iterator<Body> it = l.iterator();
+                while (it.hasNext()) {
+                    sum += it.next().getX();
+                }
+                return sum;
+            };
+        }
+        throw new Exception("Unknown operation " + op);
+    }
+
+    private static long get(List<Body> l, int index) {
+        try {
+            return l.get(index).getX();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package massivemotion.jmh;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+/**
+ * Single list operations at sizes from 10 to 1M, for every list property
+ * value. The workloads are described in ListWorkloads.listOp(); fill
+ * reports the time for all size adds, the others the time per call.
+ *
+ * Run with java -jar target/benchmarks.jar ListOpsBenchmark, narrowing
+ * with e.g. -p list=arraylist,ring -p size=1000000.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class ListOpsBenchmark {
+
+    @Param({"arraylist", "single", "double", "dummyhead", "unrolled", "ring"})
+    public String list;
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int size;
+
+    private LongSupplier op;
+
+    /**
+     * Build the workload for the benchmark being run, named after its
+     * method.
+     */
+    @Setup(Level.Trial)
+    public void setup(BenchmarkParams params) throws Exception {
+        String name = params.getBenchmark();
+        name = name.substring(name.lastIndexOf('.') + 1);
+        op = (LongSupplier) Class.forName("ListWorkloads")
+                .getMethod("listOp", String.class, String.class, int.class, long.class)
+                .invoke(null, list, name, size, 42L);
+    }
+
+    @Benchmark
+    public long fill() {
+        return op.getAsLong();
+    }
+
+    @Benchmark
+    public long get() {
+        return op.getAsLong();
+    }
+
+    @Benchmark
+    public long getNext() {
+        return op.getAsLong();
+    }
+
+    @Benchmark
+    public long addRemove() {
+        return op.getAsLong();
+    }
+
+    @Benchmark
+    public long fifo() {
+        return op.getAsLong();
+    }
+
+    @Benchmark
+    public long removeIf() {
+        return op.getAsLong();
+    }
+
+    @Benchmark
+    public long iterate() {
+        return op.getAsLong();
+    }
+}
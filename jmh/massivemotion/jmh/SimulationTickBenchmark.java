@@ -0,0 +1,52 @@
+package massivemotion.jmh;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time per simulation tick (spawn, move, cull) for every list property
+ * value, at the default spawn rate and with a spawn on every tick. The
+ * population reaches its steady state within the warmup.
+ *
+ * Run with java -jar target/benchmarks.jar SimulationTickBenchmark.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class SimulationTickBenchmark {
+
+    @Param({"arraylist", "single", "double", "dummyhead", "unrolled", "ring", "store", "offheap"})
+    public String list;
+
+    @Param({"0.06", "1.0"})
+    public double gen;
+
+    private LongSupplier tick;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        tick = (LongSupplier) Class.forName("ListWorkloads")
+                .getMethod("tick", String.class, double.class, long.class)
+                .invoke(null, list, gen, 42L);
+    }
+
+    @Benchmark
+    public long tick() {
+        return tick.getAsLong();
+    }
+}
@@ -0,0 +1,328 @@
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Circular-buffer list implementation. Elements live in a power-of-two
+ * array starting at head and wrapping around the end, so adding or
+ * removing at either end is O(1) and get(index) is one masked lookup.
+ * An insert or remove in the middle moves whichever side of the index is
+ * shorter, using System.arraycopy where that range does not wrap.
+ *
+ * @param <T> element type
+ */
+public class ArrayDequeList<T> implements List<T> {
+    private Object[] arr;
+    private int head;
+    private int size;
+
+    /**
+     * Constructor
+     */
+    public ArrayDequeList() {
+        arr = new Object[16];
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * Array slot of a logical index.
+     */
+    private int slot(int index) {
+        return (head + index) & (arr.length - 1);
+    }
+
+    /**
+     * Double the capacity, unwrapping the elements to start at slot 0.
+     */
+    private void grow_array() {
+        resize(arr.length * 2);
+    }
+
+    /**
+     * Move the elements into a new array of the given power-of-two length.
+     */
+    private void resize(int capacity) {
+        Object[] newArr = new Object[capacity];
+        int first = Math.min(size, arr.length - head);
+        System.arraycopy(arr, head, newArr, 0, first);
+        System.arraycopy(arr, 0, newArr, first, size - first);
+        arr = newArr;
+        head = 0;
+    }
+
+    /**
+     * Move count elements from logical index from to logical index to.
+     * The ranges may overlap.
+     */
+    private void move(int from, int to, int count) {
+        if (count <= 0) return;
+        int src = slot(from), dst = slot(to);
+        if (src + count <= arr.length && dst + count <= arr.length) {
+            System.arraycopy(arr, src, arr, dst, count);
+        } else if (to < from) {
+            for (int i = 0; i < count; i++) {
+                arr[slot(to + i)] = arr[slot(from + i)];
+            }
+        } else {
+            for (int i = count - 1; i >= 0; i--) {
+                arr[slot(to + i)] = arr[slot(from + i)];
+            }
+        }
+    }
+
+    /**
+     * Current number of elements in the list.
+     * @return size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Remove all elements from the list.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            arr[slot(i)] = null;
+        }
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * Add element to the end of the list.
+     * @param element element to add
+     * @return true on success
+     */
+    public boolean add(T element) {
+        if (size == arr.length) {
+            grow_array();
+        }
+        arr[slot(size)] = element;
+        size++;
+        return true;
+    }
+
+    /**
+     * Insert element at the given index.
+     * @param index insertion index
+     * @param element element to insert
+     * @throws Exception on invalid index
+     */
+    public void add(int index, T element) throws Exception {
+        if (index < 0 || index > size) {
+            throw new Exception("Invalid position");
+        }
+        if (size == arr.length) {
+            grow_array();
+        }
+        if (index < size / 2) {
+            // Shift the front down one slot
+            head = (head - 1) & (arr.length - 1);
+            move(1, 0, index);
+        } else {
+            move(index, index + 1, size - index);
+        }
+        arr[slot(index)] = element;
+        size++;
+    }
+
+    /**
+     * Return element at given index.
+     * @param index retrieval index
+     * @return element at index
+     * @throws Exception on invalid index
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int index) throws Exception {
+        if (index < 0 || index >= size) {
+            throw new Exception("Invalid position");
+        }
+        return (T) arr[slot(index)];
+    }
+
+    /**
+     * Remove and return element at index.
+     * @param index index to remove
+     * @return removed element
+     * @throws Exception on invalid index
+     */
+    public T remove(int index) throws Exception {
+        if (index < 0 || index >= size) {
+            throw new Exception("Invalid position");
+        }
+        return removeAt(index);
+    }
+
+    @SuppressWarnings("unchecked")
+    private T removeAt(int index) {
+        T value = (T) arr[slot(index)];
+        if (index < size / 2) {
+            // Shift the front up one slot
+            move(0, 1, index);
+            arr[head] = null;
+            head = (head + 1) & (arr.length - 1);
+        } else {
+            move(index + 1, index, size - index - 1);
+            arr[slot(size - 1)] = null;
+        }
+        size--;
+        return value;
+    }
+
+    /**
+     * Add every element of other to the end of the list, in order. The
+     * array grows at most once.
+     * @param other list to copy from; may be this list
+     * @return true if any element was added
+     */
+    public boolean addAll(List<T> other) {
+        int n = other.size();
+        ensureCapacity(size + n);
+        Iterator<T> it = other.iterator();
+        for (int i = 0; i < n; i++) {
+            arr[slot(size)] = it.next();
+            size++;
+        }
+        return n > 0;
+    }
+
+    /**
+     * Remove every element the filter accepts, compacting the survivors
+     * in a single pass. If the filter throws, the elements it did not get
+     * to are kept.
+     * @param filter returns true for elements to remove
+     * @return true if any element was removed
+     */
+    @SuppressWarnings("unchecked")
+    public boolean removeIf(Predicate<? super T> filter) {
+        int w = 0, r = 0;
+        int before = size;
+        try {
+            for (; r < size; r++) {
+                Object element = arr[slot(r)];
+                if (!filter.test((T) element)) {
+                    arr[slot(w++)] = element;
+                }
+            }
+        } finally {
+            move(r, w, size - r);
+            w += size - r;
+            for (int i = w; i < size; i++) {
+                arr[slot(i)] = null;
+            }
+            size = w;
+        }
+        return size != before;
+    }
+
+    /**
+     * Make room for at least capacity elements, rounded up to a power of
+     * two.
+     * @param capacity number of elements to make room for
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > arr.length) {
+            resize(powerOfTwoAtLeast(capacity));
+        }
+    }
+
+    /**
+     * Shrink the array to the smallest power of two that holds the
+     * elements, but not below the initial 16.
+     */
+    public void trimToSize() {
+        int capacity = Math.max(16, powerOfTwoAtLeast(size));
+        if (capacity < arr.length) {
+            resize(capacity);
+        }
+    }
+
+    private static int powerOfTwoAtLeast(int n) {
+        return n <= 1 ? 1 : Integer.highestOneBit(n - 1) << 1;
+    }
+
+    /**
+     * Return an iterator for this list.
+     * @return iterator
+     */
+    public Iterator<T> iterator() {
+        return new ListIterator();
+    }
+
+    /**
+     * Return a Spliterator that splits by halving the index range.
+     * @return spliterator
+     */
+    public Spliterator<T> spliterator() {
+        return new RangeSpliterator(0, size);
+    }
+
+    private class RangeSpliterator implements Spliterator<T> {
+        // Logical indices [index, end)
+        private int index;
+        private final int end;
+
+        RangeSpliterator(int index, int end) {
+            this.index = index;
+            this.end = end;
+        }
+
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (index >= end) return false;
+            action.accept((T) arr[slot(index++)]);
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        public void forEachRemaining(Consumer<? super T> action) {
+            Object[] a = arr;
+            int mask = a.length - 1;
+            for (int i = index; i < end; i++) {
+                action.accept((T) a[(head + i) & mask]);
+            }
+            index = end;
+        }
+
+        public Spliterator<T> trySplit() {
+            int mid = (index + end) >>> 1;
+            if (mid <= index) return null;
+            RangeSpliterator prefix = new RangeSpliterator(index, mid);
+            index = mid;
+            return prefix;
+        }
+
+        public long estimateSize() {
+            return end - index;
+        }
+
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED;
+        }
+    }
+
+    private class ListIterator implements Iterator<T> {
+        private int nextIndex = 0;
+        private boolean canRemove = false;
+
+        public boolean hasNext() {
+            return nextIndex < size;
+        }
+
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if (nextIndex >= size) throw new RuntimeException("No more elements");
+            canRemove = true;
+            return (T) arr[slot(nextIndex++)];
+        }
+
+        public void remove() {
+            if (!canRemove) throw new RuntimeException("No element to remove");
+            // Either way the elements after the removed one move down one index
+            removeAt(--nextIndex);
+            canRemove = false;
+        }
+    }
+}
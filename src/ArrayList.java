@@ -1,3 +1,7 @@
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Predicate;
+
 /**
  * Array list implementation implemented from Prof. Brizan's slides.
  * 
@@ -16,10 +20,12 @@ public class ArrayList<T> implements List<T> {
     }
 
     private void grow_array () {
-        T [] new_arr = (T[]) new Object[arr.length * 3 / 2 + 1];
-        for (int i = 0; i < arr.length; i++) {
-            new_arr[i] = arr[i];
-        }
+        resize(arr.length * 3 / 2 + 1);
+    }
+
+    private void resize (int capacity) {
+        T [] new_arr = (T[]) new Object[capacity];
+        System.arraycopy(arr, 0, new_arr, 0, size);
         arr = new_arr;
     }
 
@@ -58,15 +64,18 @@ public class ArrayList<T> implements List<T> {
     }
 
     /**
-     * Insert element at the given index.
-     * @param index insertion index
+     * Insert element at the given index; index == size appends.
+     * @param index insertion index, 0 to size
      * @param element element to insert
      * @throws Exception on invalid index
      */
     public void add (int index, T element) throws Exception {
-        if (index < 0 || index >= size) {
+        if (index < 0 || index > size) {
             throw new Exception("Invalid position");
         }
+        if (size == arr.length) {
+            grow_array();
+        }
         for (int i = size; i > index; i--) {
             arr[i] = arr[i - 1];
         }
@@ -100,16 +109,37 @@ public class ArrayList<T> implements List<T> {
         return new ListIterator();
     }
 
+    /**
+     * Return a Spliterator over the backing array, split by halving the
+     * index range.
+     * @return spliterator
+     */
+    public Spliterator<T> spliterator () {
+        return Spliterators.spliterator(arr, 0, size, Spliterator.ORDERED);
+    }
+
     private class ListIterator implements Iterator<T> {
         private int nextIndex = 0;
+        private boolean canRemove = false;
 
         public boolean hasNext () {
             return nextIndex < size && nextIndex >= 0;
         }
 
         public T next () {
+            canRemove = true;
             return arr[nextIndex++];
         }
+
+        public void remove () {
+            if (!canRemove) throw new RuntimeException("No element to remove");
+            canRemove = false;
+            nextIndex--;
+            for (int i = nextIndex; i < size - 1; i++) {
+                arr[i] = arr[i + 1];
+            }
+            arr[--size] = null;
+        }
     }
 
     /**
@@ -119,4 +149,71 @@ public class ArrayList<T> implements List<T> {
         for (int i = 0; i < size; i++) arr[i] = null;
         size = 0;
     }
+
+    /**
+     * Add every element of other to the end of the list, in order. The
+     * array grows at most once, and another ArrayList is copied with
+     * System.arraycopy.
+     * @param other list to copy from; may be this list
+     * @return true if any element was added
+     */
+    public boolean addAll (List<T> other) {
+        int n = other.size();
+        ensureCapacity(size + n);
+        if (other instanceof ArrayList) {
+            System.arraycopy(((ArrayList<T>) other).arr, 0, arr, size, n);
+            size += n;
+        } else {
+            Iterator<T> it = other.iterator();
+            for (int i = 0; i < n; i++) {
+                arr[size++] = it.next();
+            }
+        }
+        return n > 0;
+    }
+
+    /**
+     * Remove every element the filter accepts, compacting the survivors
+     * in a single pass. If the filter throws, the elements it did not get
+     * to are kept.
+     * @param filter returns true for elements to remove
+     * @return true if any element was removed
+     */
+    public boolean removeIf (Predicate<? super T> filter) {
+        int w = 0, r = 0;
+        int before = size;
+        try {
+            for (; r < size; r++) {
+                T element = arr[r];
+                if (!filter.test(element)) {
+                    arr[w++] = element;
+                }
+            }
+        } finally {
+            System.arraycopy(arr, r, arr, w, size - r);
+            w += size - r;
+            for (int i = w; i < size; i++) arr[i] = null;
+            size = w;
+        }
+        return size != before;
+    }
+
+    /**
+     * Make room for at least capacity elements.
+     * @param capacity number of elements to make room for
+     */
+    public void ensureCapacity (int capacity) {
+        if (capacity > arr.length) {
+            resize(Math.max(capacity, arr.length * 3 / 2 + 1));
+        }
+    }
+
+    /**
+     * Shrink the array to the current number of elements.
+     */
+    public void trimToSize () {
+        if (arr.length > size) {
+            resize(size);
+        }
+    }
 }
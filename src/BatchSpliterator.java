@@ -0,0 +1,66 @@
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator over any List, built on its Iterator. A list that can only
+ * be walked from the front is split by copying the next batch of elements
+ * into an array and handing that off, with each batch 1024 elements
+ * larger than the last, so workers get array slices to process while this
+ * spliterator keeps walking the rest of the list.
+ *
+ * @param <T> element type
+ */
+public class BatchSpliterator<T> implements Spliterator<T> {
+
+    static final int BATCH_UNIT = 1024;
+    static final int MAX_BATCH = 1 << 25;
+
+    private final Iterator<T> it;
+    private long remaining;
+    private int batch;
+
+    /**
+     * @param it iterator positioned at the first element
+     * @param size number of elements the iterator will return
+     */
+    public BatchSpliterator(Iterator<T> it, int size) {
+        this.it = it;
+        this.remaining = size;
+    }
+
+    public boolean tryAdvance(Consumer<? super T> action) {
+        if (remaining <= 0 || !it.hasNext()) return false;
+        remaining--;
+        action.accept(it.next());
+        return true;
+    }
+
+    public void forEachRemaining(Consumer<? super T> action) {
+        while (remaining > 0 && it.hasNext()) {
+            remaining--;
+            action.accept(it.next());
+        }
+    }
+
+    public Spliterator<T> trySplit() {
+        if (remaining <= 1 || !it.hasNext()) return null;
+        int n = (int) Math.min(Math.min(remaining, MAX_BATCH), batch + BATCH_UNIT);
+        Object[] a = new Object[n];
+        int j = 0;
+        while (j < n && it.hasNext()) {
+            a[j++] = it.next();
+        }
+        batch = j;
+        remaining -= j;
+        return Spliterators.spliterator(a, 0, j, characteristics());
+    }
+
+    public long estimateSize() {
+        return remaining;
+    }
+
+    public int characteristics() {
+        return ORDERED | SIZED | SUBSIZED;
+    }
+}
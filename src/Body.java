@@ -1,14 +1,28 @@
 /**
  * Represents a celestial body in the simulation.
- * Encapsulates position (x,y), velocity (vx,vy), and a fixed size.
+ * Encapsulates position (x,y), velocity (vx,vy), a size and a mass.
+ * Position and velocity are kept as doubles so gravity can apply sub-pixel
+ * accelerations; the int getters truncate them for drawing. Culling
+ * tests the exact double position.
  * The isStar flag indicates the special central star which the simulation
  * treats differently (it is not removed when it moves off-screen).
+ * BodyStore also hands out Body views over its arrays for callers that
+ * need one.
  */
 public class Body {
-    private int x, y;
-    private int vx, vy;
-    private final int size;
-    private final boolean isStar;
+    private double x, y;
+    private double vx, vy;
+    private int size;
+    private double mass;
+    private boolean isStar;
+
+    // Set while an ExpiryScheduler is tracking the body's exit tick
+    ExpiryScheduler scheduler;
+    TimingWheel.Entry<Body> expiry;
+    boolean expired;
+
+    // Position in the engine's HandleList, when it keeps one
+    HandleList.Handle<Body> node;
 
     /**
      * Create a body.
@@ -20,27 +34,99 @@ public class Body {
      * @param isStar whether this body is the central star
      */
     public Body(int x, int y, int vx, int vy, int size, boolean isStar) {
+        this(x, y, vx, vy, size, 1, isStar);
+    }
+
+    /**
+     * Create a body with the given mass.
+     * @param x initial x position
+     * @param y initial y position
+     * @param vx initial x velocity
+     * @param vy initial y velocity
+     * @param size diameter when drawn
+     * @param mass mass in kilograms
+     * @param isStar whether this body is the central star
+     */
+    public Body(int x, int y, int vx, int vy, int size, double mass, boolean isStar) {
+        init(x, y, vx, vy, size, mass, isStar);
+    }
+
+    /**
+     * Reinitialize the body as if it had just been constructed. Used by
+     * BodyPool to recycle bodies instead of allocating new ones.
+     */
+    public void init(int x, int y, int vx, int vy, int size, double mass, boolean isStar) {
         this.x = x;
         this.y = y;
         this.vx = vx;
         this.vy = vy;
         this.size = size;
+        this.mass = mass;
         this.isStar = isStar;
+        scheduler = null;
+        expired = false;
+        node = null;
     }
 
     /**
      * Getters and setters.
      * @return
      */
-    public int getX() { return x; }
-    public int getY() { return y; }
-    public int getVx() { return vx; }
-    public int getVy() { return vy; }
+    public int getX() { return (int) x; }
+    public int getY() { return (int) y; }
+    public int getVx() { return (int) vx; }
+    public int getVy() { return (int) vy; }
+    public double getPreciseX() { return x; }
+    public double getPreciseY() { return y; }
+    public double getPreciseVx() { return vx; }
+    public double getPreciseVy() { return vy; }
     public int getSize() { return size; }
+    public double getMass() { return mass; }
     public boolean isStar() { return isStar; }
 
-    public void setVx(int vx) { this.vx = vx; }
-    public void setVy(int vy) { this.vy = vy; }
+    public void setVx(int vx) {
+        this.vx = vx;
+        velocityChanged();
+    }
+
+    public void setVy(int vy) {
+        this.vy = vy;
+        velocityChanged();
+    }
+
+    /**
+     * Add an acceleration to the body's velocity for the current tick.
+     * @param ax x acceleration in pixels per tick squared
+     * @param ay y acceleration in pixels per tick squared
+     */
+    public void accelerate(double ax, double ay) {
+        vx += ax;
+        vy += ay;
+        velocityChanged();
+    }
+
+    /**
+     * Replace the body's state, e.g. after it has absorbed another body.
+     */
+    public void setState(double x, double y, double vx, double vy, int size, double mass) {
+        this.x = x;
+        this.y = y;
+        this.vx = vx;
+        this.vy = vy;
+        this.size = size;
+        this.mass = mass;
+        velocityChanged();
+    }
+
+    /**
+     * Let the scheduler tracking this body, if any, recompute its exit
+     * tick.
+     */
+    private void velocityChanged() {
+        if (scheduler != null) {
+            scheduler.reschedule(this);
+        }
+    }
 
     /**
      * Advance the body's position by its velocity.
@@ -0,0 +1,42 @@
+/**
+ * Free list of Body objects. Bodies that leave the simulation are released
+ * here and handed out again for new spawns, so once the population is
+ * steady no Body is allocated per tick.
+ */
+public class BodyPool {
+    private Body[] free = new Body[16];
+    private int count;
+
+    /**
+     * Return a body initialized with the given state, reusing a released
+     * one when available.
+     */
+    public Body acquire(int x, int y, int vx, int vy, int size, double mass, boolean isStar) {
+        if (count == 0) {
+            return new Body(x, y, vx, vy, size, mass, isStar);
+        }
+        Body b = free[--count];
+        free[count] = null;
+        b.init(x, y, vx, vy, size, mass, isStar);
+        return b;
+    }
+
+    /**
+     * Give a body back to the pool. The caller must not use it afterwards.
+     * @param b body to recycle
+     */
+    public void release(Body b) {
+        if (count == free.length) {
+            free = java.util.Arrays.copyOf(free, free.length * 3 / 2 + 1);
+        }
+        free[count++] = b;
+    }
+
+    /**
+     * Number of bodies waiting to be reused.
+     * @return size
+     */
+    public int size() {
+        return count;
+    }
+}
@@ -0,0 +1,183 @@
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.GraphicsConfiguration;
+import java.awt.Rectangle;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+/**
+ * Draws a Snapshot for the panel.
+ *
+ * Bodies are drawn by copying pre-rendered sprites: one image per body
+ * size and colour, created compatible with the screen on first use so
+ * Java2D can keep it in video memory, instead of rasterising an oval per
+ * body. Bodies entirely outside the clip rectangle are skipped.
+ *
+ * Above density_threshold bodies, per-body drawing is replaced by a
+ * density map: each body adds one to the pixel under its center in an
+ * int[] raster, the pixels are shaded by count, and the whole map is
+ * drawn as one image. Only the pixels touched in the last frame are
+ * cleared, so a frame costs O(bodies) rather than O(pixels). The star is
+ * still drawn as a sprite on top.
+ */
+public class BodyRenderer {
+
+    // Larger bodies (e.g. a star that has absorbed many) are drawn directly
+    static final int MAX_SPRITE = 256;
+
+    // ARGB shade for a pixel count, saturating at 255
+    private static final int[] SHADES = new int[256];
+    static {
+        for (int c = 1; c < SHADES.length; c++) {
+            int alpha = (int) Math.round(80 + 175 * Math.log(c) / Math.log(SHADES.length - 1));
+            SHADES[c] = alpha << 24;
+        }
+    }
+
+    private volatile int densityThreshold;
+
+    // Sprites by size, for bodies and for the star
+    private BufferedImage[] bodySprites = new BufferedImage[0];
+    private BufferedImage[] starSprites = new BufferedImage[0];
+    private GraphicsConfiguration spriteConfig;
+
+    private BufferedImage density;
+    private int[] pixels;
+    private int[] counts;
+    private final IntArrayList touched = new IntArrayList();
+
+    /**
+     * @param densityThreshold body count above which the density map is
+     *                         drawn instead of individual bodies
+     */
+    public BodyRenderer(int densityThreshold) {
+        this.densityThreshold = densityThreshold;
+    }
+
+    /**
+     * Change the density map threshold. May be called from any thread.
+     */
+    public void setDensityThreshold(int densityThreshold) {
+        this.densityThreshold = densityThreshold;
+    }
+
+    /**
+     * Draw the snapshot.
+     * @param g graphics to draw on; its clip limits what is drawn
+     * @param snap bodies to draw
+     * @param alpha interpolation between the previous and the current
+     *              state, from Snapshot.alpha()
+     * @param width panel width
+     * @param height panel height
+     * @param gc screen configuration for the sprites, or null
+     */
+    public void paint(Graphics g, Snapshot snap, double alpha, int width, int height, GraphicsConfiguration gc) {
+        if (gc != spriteConfig) {
+            // Moved to another screen: sprites must be compatible with the new one
+            bodySprites = new BufferedImage[0];
+            starSprites = new BufferedImage[0];
+            spriteConfig = gc;
+        }
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, width, height);
+        }
+        if (snap.size() > densityThreshold) {
+            paintDensity(g, snap, alpha, clip, width, height);
+        } else {
+            paintSprites(g, snap, alpha, clip, false);
+        }
+    }
+
+    /**
+     * Draw the bodies that overlap the clip, or only the star.
+     */
+    private void paintSprites(Graphics g, Snapshot snap, double alpha, Rectangle clip, boolean starOnly) {
+        int left = clip.x, top = clip.y;
+        int right = clip.x + clip.width, bottom = clip.y + clip.height;
+        for (int i = 0; i < snap.size(); i++) {
+            boolean star = snap.isStar(i);
+            if (starOnly && !star) continue;
+            int x = snap.getX(i, alpha);
+            int y = snap.getY(i, alpha);
+            int size = snap.getSize(i);
+            if (x + size <= left || y + size <= top || x >= right || y >= bottom) {
+                continue;
+            }
+            BufferedImage sprite = sprite(size, star);
+            if (sprite != null) {
+                g.drawImage(sprite, x, y, null);
+            } else {
+                g.setColor(star ? Color.RED : Color.BLACK);
+                g.fillOval(x, y, size, size);
+            }
+        }
+    }
+
+    /**
+     * Sprite for a body size and colour, created on first use.
+     * @return sprite, or null if size is out of the cached range
+     */
+    private BufferedImage sprite(int size, boolean star) {
+        if (size <= 0 || size > MAX_SPRITE) return null;
+        BufferedImage[] sprites = star ? starSprites : bodySprites;
+        if (size >= sprites.length) {
+            sprites = java.util.Arrays.copyOf(sprites, Math.max(size + 1, sprites.length * 3 / 2 + 1));
+            if (star) starSprites = sprites; else bodySprites = sprites;
+        }
+        if (sprites[size] == null) {
+            BufferedImage img = spriteConfig != null
+                    ? spriteConfig.createCompatibleImage(size, size, Transparency.BITMASK)
+                    : new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+            Graphics sg = img.getGraphics();
+            sg.setColor(star ? Color.RED : Color.BLACK);
+            sg.fillOval(0, 0, size, size);
+            sg.dispose();
+            sprites[size] = img;
+        }
+        return sprites[size];
+    }
+
+    /**
+     * Draw the bodies as a density map, then the star.
+     */
+    private void paintDensity(Graphics g, Snapshot snap, double alpha, Rectangle clip, int width, int height) {
+        if (width <= 0 || height <= 0) return;
+        if (density == null || density.getWidth() != width || density.getHeight() != height) {
+            density = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            pixels = ((DataBufferInt) density.getRaster().getDataBuffer()).getData();
+            counts = new int[width * height];
+            touched.clear();
+        }
+
+        // Clear last frame's pixels
+        IntIterator it = touched.iterator();
+        while (it.hasNext()) {
+            int p = it.nextInt();
+            pixels[p] = 0;
+            counts[p] = 0;
+        }
+        touched.clear();
+
+        for (int i = 0; i < snap.size(); i++) {
+            if (snap.isStar(i)) continue;
+            int half = snap.getSize(i) / 2;
+            int x = snap.getX(i, alpha) + half;
+            int y = snap.getY(i, alpha) + half;
+            if (x < 0 || y < 0 || x >= width || y >= height) continue;
+            int p = y * width + x;
+            if (counts[p]++ == 0) {
+                touched.add(p);
+            }
+        }
+
+        it = touched.iterator();
+        while (it.hasNext()) {
+            int p = it.nextInt();
+            pixels[p] = SHADES[Math.min(counts[p], SHADES.length - 1)];
+        }
+        g.drawImage(density, 0, 0, null);
+        paintSprites(g, snap, alpha, clip, true);
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * Aggregate statistics over a set of bodies: count, total mass, total
+ * kinetic energy and the bounding box of their circles. Kinetic energy is
+ * in kilograms times (pixels per tick) squared; multiply by distance_scale
+ * squared for joules, since one tick is one second.
+ *
+ * Instances are mutable accumulators, shaped for Stream.collect(): add()
+ * takes one body and combine() merges another accumulator into this one,
+ * so per-thread partial results can be computed in parallel and joined.
+ */
+public class BodyStats {
+    private int count;
+    private double mass;
+    private double kineticEnergy;
+    private double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+    private double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Add one body.
+     * @param b body to include
+     */
+    public void add(Body b) {
+        add(b.getPreciseX(), b.getPreciseY(), b.getPreciseVx(), b.getPreciseVy(), b.getSize(), b.getMass());
+    }
+
+    /**
+     * Add one body given by its state.
+     */
+    public void add(double x, double y, double vx, double vy, int size, double m) {
+        count++;
+        mass += m;
+        kineticEnergy += 0.5 * m * (vx * vx + vy * vy);
+        minX = Math.min(minX, x);
+        minY = Math.min(minY, y);
+        maxX = Math.max(maxX, x + size);
+        maxY = Math.max(maxY, y + size);
+    }
+
+    /**
+     * Merge another accumulator into this one.
+     * @param other partial result to add
+     */
+    public void combine(BodyStats other) {
+        count += other.count;
+        mass += other.mass;
+        kineticEnergy += other.kineticEnergy;
+        minX = Math.min(minX, other.minX);
+        minY = Math.min(minY, other.minY);
+        maxX = Math.max(maxX, other.maxX);
+        maxY = Math.max(maxY, other.maxY);
+    }
+
+    /**
+     * Getters. The bounds are infinite when count is 0.
+     */
+    public int getCount() { return count; }
+    public double getMass() { return mass; }
+    public double getKineticEnergy() { return kineticEnergy; }
+    public double getMinX() { return minX; }
+    public double getMinY() { return minY; }
+    public double getMaxX() { return maxX; }
+    public double getMaxY() { return maxY; }
+
+    public String toString() {
+        if (count == 0) return "no bodies";
+        return String.format("%d bodies, kinetic energy %.4e kg px^2/tick^2, bounds (%.1f, %.1f)-(%.1f, %.1f)",
+                count, kineticEnergy, minX, minY, maxX, maxY);
+    }
+}
@@ -0,0 +1,365 @@
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Structure-of-arrays storage for the simulation bodies on the heap
+ * (list = store). Positions,
+ * velocities (as doubles, like Body), sizes and masses are kept in parallel
+ * primitive arrays so the per-tick update is a tight indexed loop instead
+ * of a walk over separately allocated Body objects.
+ *
+ * remove() swaps the last body into the freed slot, so it is O(1) but
+ * does not preserve order. step() culls by compacting the survivors in
+ * order instead, and never culls the star, so if the star is added first
+ * it stays at index 0.
+ */
+public class BodyStore implements ColumnStore {
+    private double[] x, y;
+    private double[] vx, vy;
+    private int[] size;
+    private double[] mass;
+    private boolean[] star;
+    private int count;
+
+    // Move-and-cull loop used by step()
+    private StepKernel kernel = new ScalarStepKernel();
+
+    // Parallel step: the runner, survivors per chunk and this tick's
+    // bounds, kept between ticks
+    private ParallelChunks.Runner stepRunner;
+    private int[] kept;
+    private int stepMinX, stepMinY, stepMaxX, stepMaxY;
+
+    /**
+     * Constructor
+     */
+    public BodyStore() {
+        this(16);
+    }
+
+    /**
+     * Create a store with room for the given number of bodies.
+     * @param capacity initial capacity
+     */
+    public BodyStore(int capacity) {
+        capacity = Math.max(1, capacity);
+        x = new double[capacity];
+        y = new double[capacity];
+        vx = new double[capacity];
+        vy = new double[capacity];
+        size = new int[capacity];
+        mass = new double[capacity];
+        star = new boolean[capacity];
+        count = 0;
+    }
+
+    private void grow_arrays() {
+        int capacity = x.length * 3 / 2 + 1;
+        x = java.util.Arrays.copyOf(x, capacity);
+        y = java.util.Arrays.copyOf(y, capacity);
+        vx = java.util.Arrays.copyOf(vx, capacity);
+        vy = java.util.Arrays.copyOf(vy, capacity);
+        size = java.util.Arrays.copyOf(size, capacity);
+        mass = java.util.Arrays.copyOf(mass, capacity);
+        star = java.util.Arrays.copyOf(star, capacity);
+    }
+
+    /**
+     * Use the given kernel for step().
+     * @param kernel move-and-cull loop, e.g. from StepKernel.create()
+     */
+    public void setKernel(StepKernel kernel) {
+        this.kernel = kernel;
+    }
+
+    /**
+     * @return kernel used by step()
+     */
+    public StepKernel getKernel() {
+        return kernel;
+    }
+
+    /**
+     * Current number of bodies in the store.
+     * @return size
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Add a body with the given mass to the end of the store. Position and
+     * velocity may be fractional, e.g. when restoring a checkpoint.
+     * @return index of the new body
+     */
+    public int add(double x, double y, double vx, double vy, int size, double mass, boolean isStar) {
+        if (count == this.x.length) {
+            grow_arrays();
+        }
+        this.x[count] = x;
+        this.y[count] = y;
+        this.vx[count] = vx;
+        this.vy[count] = vy;
+        this.size[count] = size;
+        this.mass[count] = mass;
+        this.star[count] = isStar;
+        return count++;
+    }
+
+    /**
+     * Remove the body at index by moving the last body into its slot.
+     * @param index index to remove
+     * @throws Exception on invalid index
+     */
+    public void remove(int index) throws Exception {
+        if (index < 0 || index >= count) {
+            throw new Exception("Invalid position");
+        }
+        swapRemove(index);
+    }
+
+    private void swapRemove(int index) {
+        int last = --count;
+        x[index] = x[last];
+        y[index] = y[last];
+        vx[index] = vx[last];
+        vy[index] = vy[last];
+        size[index] = size[last];
+        mass[index] = mass[last];
+        star[index] = star[last];
+    }
+
+    /**
+     * Remove all bodies from the store.
+     */
+    public void clear() {
+        count = 0;
+    }
+
+    /**
+     * Getters and setters by index. These do not check bounds.
+     */
+    public int getX(int i) { return (int) x[i]; }
+    public int getY(int i) { return (int) y[i]; }
+    public int getVx(int i) { return (int) vx[i]; }
+    public int getVy(int i) { return (int) vy[i]; }
+    public double getPreciseX(int i) { return x[i]; }
+    public double getPreciseY(int i) { return y[i]; }
+    public double getPreciseVx(int i) { return vx[i]; }
+    public double getPreciseVy(int i) { return vy[i]; }
+    public int getSize(int i) { return size[i]; }
+    public double getMass(int i) { return mass[i]; }
+    public boolean isStar(int i) { return star[i]; }
+
+    public void setVx(int i, int v) { vx[i] = v; }
+    public void setVy(int i, int v) { vy[i] = v; }
+
+    /**
+     * Add an acceleration to the velocity of the body at index.
+     */
+    public void accelerate(int i, double ax, double ay) {
+        vx[i] += ax;
+        vy[i] += ay;
+    }
+
+    /**
+     * Advance every body by its velocity and remove non-star bodies that
+     * end up outside [minX, maxX] x [minY, maxY]. Survivors are compacted
+     * in order, so the result is the same as the parallel step.
+     * @return number of bodies removed
+     */
+    public int step(int minX, int minY, int maxX, int maxY) {
+        int kept = stepRange(0, count, minX, minY, maxX, maxY);
+        int removed = count - kept;
+        count = kept;
+        return removed;
+    }
+
+    /**
+     * Same as step(), but the bodies are split into chunks that are moved
+     * and culled on the pool. Each chunk compacts its own survivors, and
+     * the chunks are then packed together in order.
+     * @return number of bodies removed
+     */
+    public int step(int minX, int minY, int maxX, int maxY, ForkJoinPool pool, int threads) {
+        int n = count;
+        int chunks = ParallelChunks.chunksFor(n, threads);
+        if (chunks <= 1) {
+            return step(minX, minY, maxX, maxY);
+        }
+        setUpParallel(pool, threads);
+        stepMinX = minX;
+        stepMinY = minY;
+        stepMaxX = maxX;
+        stepMaxY = maxY;
+        stepRunner.run(n, chunks);
+
+        int dst = kept[0];
+        for (int c = 1; c < chunks; c++) {
+            int lo = ParallelChunks.chunkStart(c, n, chunks);
+            if (dst != lo) {
+                System.arraycopy(x, lo, x, dst, kept[c]);
+                System.arraycopy(y, lo, y, dst, kept[c]);
+                System.arraycopy(vx, lo, vx, dst, kept[c]);
+                System.arraycopy(vy, lo, vy, dst, kept[c]);
+                System.arraycopy(size, lo, size, dst, kept[c]);
+                System.arraycopy(mass, lo, mass, dst, kept[c]);
+                System.arraycopy(star, lo, star, dst, kept[c]);
+            }
+            dst += kept[c];
+        }
+        count = dst;
+        return n - dst;
+    }
+
+    /**
+     * Create the chunk runner and the per-chunk survivor counts for the
+     * pool, once, so the parallel step does not allocate per tick.
+     */
+    private void setUpParallel(ForkJoinPool pool, int threads) {
+        int chunks = ParallelChunks.maxChunks(threads);
+        if (stepRunner == null || stepRunner.getPool() != pool || kept.length < chunks) {
+            kept = new int[chunks];
+            stepRunner = new ParallelChunks.Runner(pool, chunks, this::stepChunk);
+        }
+    }
+
+    private void stepChunk(int c, int lo, int hi) {
+        kept[c] = stepRange(lo, hi, stepMinX, stepMinY, stepMaxX, stepMaxY) - lo;
+    }
+
+    /**
+     * Move and cull the bodies in [lo, hi), packing survivors from lo.
+     * @return index one past the last survivor
+     */
+    private int stepRange(int lo, int hi, int minX, int minY, int maxX, int maxY) {
+        return kernel.step(x, y, vx, vy, size, mass, star, lo, hi, minX, minY, maxX, maxY);
+    }
+
+    /**
+     * Add the bodies in [lo, hi) to stats.
+     * @param stats accumulator
+     * @param lo first index, inclusive
+     * @param hi last index, exclusive
+     */
+    public void addStats(BodyStats stats, int lo, int hi) {
+        for (int i = lo; i < hi; i++) {
+            stats.add(x[i], y[i], vx[i], vy[i], size[i], mass[i]);
+        }
+    }
+
+    /**
+     * Remove every body whose flag is set, keeping the others in order.
+     * @param dead one flag per body, by index
+     * @return number of bodies removed
+     */
+    public int removeMarked(boolean[] dead) {
+        int w = 0;
+        for (int i = 0; i < count; i++) {
+            if (dead[i]) continue;
+            if (w != i) {
+                x[w] = x[i];
+                y[w] = y[i];
+                vx[w] = vx[i];
+                vy[w] = vy[i];
+                size[w] = size[i];
+                mass[w] = mass[i];
+                star[w] = star[i];
+            }
+            w++;
+        }
+        int removed = count - w;
+        count = w;
+        return removed;
+    }
+
+    /**
+     * Return a Body view of the body at index. The view reads and writes
+     * the store directly and is only valid until the store is next modified.
+     * @param index body index
+     * @return view of the body
+     * @throws Exception on invalid index
+     */
+    public Body view(int index) throws Exception {
+        if (index < 0 || index >= count) {
+            throw new Exception("Invalid position");
+        }
+        View v = new View();
+        v.index = index;
+        return v;
+    }
+
+    /**
+     * Return an iterator over the bodies. The same Body view is reused for
+     * every call to next(), so callers must not hold on to it.
+     * @return iterator
+     */
+    public Iterator<Body> iterator() {
+        return new StoreIterator();
+    }
+
+    private class View extends Body {
+        int index;
+
+        View() {
+            super(0, 0, 0, 0, 0, false);
+        }
+
+        public int getX() { return (int) x[index]; }
+        public int getY() { return (int) y[index]; }
+        public int getVx() { return (int) vx[index]; }
+        public int getVy() { return (int) vy[index]; }
+        public double getPreciseX() { return x[index]; }
+        public double getPreciseY() { return y[index]; }
+        public double getPreciseVx() { return vx[index]; }
+        public double getPreciseVy() { return vy[index]; }
+        public int getSize() { return size[index]; }
+        public double getMass() { return mass[index]; }
+        public boolean isStar() { return star[index]; }
+
+        public void setState(double x, double y, double vx, double vy, int size, double mass) {
+            BodyStore.this.x[index] = x;
+            BodyStore.this.y[index] = y;
+            BodyStore.this.vx[index] = vx;
+            BodyStore.this.vy[index] = vy;
+            BodyStore.this.size[index] = size;
+            BodyStore.this.mass[index] = mass;
+        }
+
+        public void setVx(int v) { vx[index] = v; }
+        public void setVy(int v) { vy[index] = v; }
+
+        public void accelerate(double ax, double ay) {
+            vx[index] += ax;
+            vy[index] += ay;
+        }
+
+        public void move() {
+            x[index] += vx[index];
+            y[index] += vy[index];
+        }
+    }
+
+    private class StoreIterator implements Iterator<Body> {
+        private final View view = new View();
+        private int nextIndex = 0;
+        private boolean canRemove = false;
+
+        public boolean hasNext() {
+            return nextIndex < count;
+        }
+
+        public Body next() {
+            if (nextIndex >= count) throw new RuntimeException("No more elements");
+            canRemove = true;
+            view.index = nextIndex++;
+            return view;
+        }
+
+        public void remove() {
+            if (!canRemove) throw new RuntimeException("No element to remove");
+            canRemove = false;
+            // The last body moves into the removed slot; visit it next
+            swapRemove(--nextIndex);
+        }
+    }
+}
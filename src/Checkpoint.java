@@ -0,0 +1,156 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary checkpoint of the simulation state, written and read through
+ * memory-mapped FileChannel regions so dumping a large population is one
+ * sequential pass.
+ *
+ * Layout (little endian):
+ *   header: magic "MMCK", version, tick, seed, random draws,
+ *           random state, total merges, total absorbed, body count
+ *   bodies: x, y, vx, vy (double), size (int), mass (double), flags (byte)
+ * The star is stored like any other body with the STAR flag set.
+ */
+public class Checkpoint {
+
+    static final int MAGIC = 0x4B434D4D; // "MMCK" read little endian
+    static final int VERSION = 2;
+    static final int HEADER_BYTES = 4 + 4 + 8 * 6 + 4;
+
+    // Version 1 had no random state; the stream is advanced by the draws
+    static final int V1_HEADER_BYTES = 4 + 4 + 8 * 5 + 4;
+    static final int BODY_BYTES = 8 * 4 + 4 + 8 + 1;
+    static final byte STAR = 1;
+
+    // Each mapped region stays well under the 2 GB mapping limit
+    static final int BODIES_PER_REGION = (64 << 20) / BODY_BYTES;
+
+    /**
+     * Write the engine's state to path. The file is written next to the
+     * target and then moved into place, so a crash never leaves a partial
+     * checkpoint under the real name.
+     * @param engine simulation to save
+     * @param path checkpoint file
+     * @throws IOException on write failure
+     */
+    public static void write(SimulationEngine engine, String path) throws IOException {
+        Path target = Paths.get(path).toAbsolutePath();
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        int n = engine.size();
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            buf.putInt(MAGIC);
+            buf.putInt(VERSION);
+            buf.putLong(engine.getTick());
+            buf.putLong(engine.getSeed());
+            buf.putLong(engine.getRandomDraws());
+            buf.putLong(engine.getRandomState());
+            buf.putLong(engine.getTotalMerges());
+            buf.putLong(engine.getTotalAbsorbed());
+            buf.putInt(n);
+            buf.force();
+
+            Iterator<Body> it = engine.iterator();
+            long pos = HEADER_BYTES;
+            int written = 0;
+            while (written < n) {
+                int batch = Math.min(BODIES_PER_REGION, n - written);
+                buf = ch.map(FileChannel.MapMode.READ_WRITE, pos, (long) batch * BODY_BYTES);
+                buf.order(ByteOrder.LITTLE_ENDIAN);
+                for (int i = 0; i < batch; i++) {
+                    Body b = it.next();
+                    buf.putDouble(b.getPreciseX());
+                    buf.putDouble(b.getPreciseY());
+                    buf.putDouble(b.getPreciseVx());
+                    buf.putDouble(b.getPreciseVy());
+                    buf.putInt(b.getSize());
+                    buf.putDouble(b.getMass());
+                    buf.put(b.isStar() ? STAR : 0);
+                }
+                buf.force();
+                pos += (long) batch * BODY_BYTES;
+                written += batch;
+            }
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Replace the engine's bodies, tick counter and random stream with the
+     * ones saved in path.
+     * @param engine simulation to restore into
+     * @param path checkpoint file
+     * @throws IOException if the file cannot be read or is not a checkpoint
+     */
+    public static void read(SimulationEngine engine, String path) throws IOException {
+        try (FileChannel ch = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            if (ch.size() < V1_HEADER_BYTES) {
+                throw new IOException(path + ": too short for a checkpoint");
+            }
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, V1_HEADER_BYTES);
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            if (buf.getInt() != MAGIC) {
+                throw new IOException(path + ": not a checkpoint file");
+            }
+            int version = buf.getInt();
+            if (version != VERSION && version != 1) {
+                throw new IOException(path + ": unsupported checkpoint version " + version);
+            }
+            int header = version == 1 ? V1_HEADER_BYTES : HEADER_BYTES;
+            if (ch.size() < header) {
+                throw new IOException(path + ": too short for a checkpoint");
+            }
+            buf = ch.map(FileChannel.MapMode.READ_ONLY, 8, header - 8);
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            long tick = buf.getLong();
+            long seed = buf.getLong();
+            long draws = buf.getLong();
+            long state;
+            if (version == 1) {
+                SplitMix64 stream = new SplitMix64(seed);
+                stream.advance(draws);
+                state = stream.getState();
+            } else {
+                state = buf.getLong();
+            }
+            long merges = buf.getLong();
+            long absorbed = buf.getLong();
+            int n = buf.getInt();
+            if (n < 0 || ch.size() < header + (long) n * BODY_BYTES) {
+                throw new IOException(path + ": truncated checkpoint");
+            }
+
+            engine.clearBodies();
+            long pos = header;
+            int read = 0;
+            while (read < n) {
+                int batch = Math.min(BODIES_PER_REGION, n - read);
+                buf = ch.map(FileChannel.MapMode.READ_ONLY, pos, (long) batch * BODY_BYTES);
+                buf.order(ByteOrder.LITTLE_ENDIAN);
+                for (int i = 0; i < batch; i++) {
+                    double x = buf.getDouble();
+                    double y = buf.getDouble();
+                    double vx = buf.getDouble();
+                    double vy = buf.getDouble();
+                    int size = buf.getInt();
+                    double mass = buf.getDouble();
+                    boolean star = (buf.get() & STAR) != 0;
+                    engine.restoreBody(x, y, vx, vy, size, mass, star);
+                }
+                pos += (long) batch * BODY_BYTES;
+                read += batch;
+            }
+            engine.restoreCounters(tick, seed, draws, state, merges, absorbed);
+        }
+    }
+}
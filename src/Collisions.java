@@ -0,0 +1,180 @@
+/**
+ * Collision handling for the simulation. Two bodies whose circles overlap
+ * (center distance below the sum of their radii) merge into one, keeping
+ * total mass and momentum; the merged body's area is the sum of the two.
+ * Bodies that touch the star are absorbed into it.
+ *
+ * Candidate pairs come from a SpatialGrid with cells about one body wide
+ * (widened to the largest merged body's radius), so each body only checks
+ * its neighboring cells and a tick stays near O(n).
+ */
+public class Collisions {
+
+    private final SpatialGrid grid = new SpatialGrid();
+    private final double cellSize;
+
+    private double[] x = new double[16], y = new double[16];
+    private double[] vx = new double[16], vy = new double[16];
+    private double[] r = new double[16], m = new double[16];
+    private boolean[] star = new boolean[16];
+    private boolean[] dead = new boolean[16];
+    private boolean[] changed = new boolean[16];
+    private int n;
+
+    private int merges;
+    private int absorbed;
+
+    /**
+     * @param cellSize grid cell size, normally body_size
+     */
+    public Collisions(double cellSize) {
+        this.cellSize = Math.max(1, cellSize);
+    }
+
+    /**
+     * Getters for the last call to resolve().
+     */
+    public int getMerges() { return merges; }
+    public int getAbsorbed() { return absorbed; }
+
+    /**
+     * Flags, by iteration index, of the bodies removed by the last call to
+     * resolve(). Only the first size() entries are meaningful.
+     */
+    public boolean[] getDead() { return dead; }
+
+    /**
+     * Find and resolve this tick's collisions. Surviving bodies that
+     * changed are updated through the iterator; bodies that were merged
+     * away are flagged in getDead() for the caller to remove.
+     * @param engine simulation whose bodies collide
+     * @return number of bodies to remove
+     */
+    public int resolve(SimulationEngine engine) {
+        load(engine.iterator(), engine.size());
+        merges = 0;
+        absorbed = 0;
+
+        absorbIntoStars();
+        mergeBodies();
+
+        Iterator<Body> it = engine.iterator();
+        for (int i = 0; i < n && it.hasNext(); i++) {
+            Body b = it.next();
+            if (changed[i] && !dead[i]) {
+                int size = star[i] ? b.getSize() : (int) Math.round(2 * r[i]);
+                double half = size / 2.0;
+                b.setState(x[i] - half, y[i] - half, vx[i], vy[i], size, m[i]);
+            }
+        }
+        return merges + absorbed;
+    }
+
+    private void load(Iterator<Body> it, int size) {
+        if (x.length < size) {
+            int capacity = Math.max(size, x.length * 3 / 2 + 1);
+            x = new double[capacity];
+            y = new double[capacity];
+            vx = new double[capacity];
+            vy = new double[capacity];
+            r = new double[capacity];
+            m = new double[capacity];
+            star = new boolean[capacity];
+            dead = new boolean[capacity];
+            changed = new boolean[capacity];
+        }
+        n = 0;
+        while (it.hasNext() && n < size) {
+            Body b = it.next();
+            r[n] = b.getSize() / 2.0;
+            x[n] = b.getPreciseX() + r[n];
+            y[n] = b.getPreciseY() + r[n];
+            vx[n] = b.getPreciseVx();
+            vy[n] = b.getPreciseVy();
+            m[n] = b.getMass();
+            star[n] = b.isStar();
+            dead[n] = false;
+            changed[n] = false;
+            n++;
+        }
+    }
+
+    /**
+     * Merge body j into body i, conserving mass and momentum.
+     */
+    private void merge(int i, int j) {
+        double mi = m[i], mj = m[j];
+        double total = mi + mj;
+        if (total > 0) {
+            x[i] = (mi * x[i] + mj * x[j]) / total;
+            y[i] = (mi * y[i] + mj * y[j]) / total;
+            vx[i] = (mi * vx[i] + mj * vx[j]) / total;
+            vy[i] = (mi * vy[i] + mj * vy[j]) / total;
+        }
+        m[i] = total;
+        if (!star[i]) {
+            r[i] = Math.sqrt(r[i] * r[i] + r[j] * r[j]);
+        }
+        changed[i] = true;
+        dead[j] = true;
+    }
+
+    private boolean touching(int i, int j) {
+        double dx = x[j] - x[i], dy = y[j] - y[i];
+        double rr = r[i] + r[j];
+        return dx * dx + dy * dy < rr * rr;
+    }
+
+    /**
+     * There are only a handful of stars, so each one checks every body
+     * directly. A star keeps its size and position when it absorbs.
+     */
+    private void absorbIntoStars() {
+        for (int s = 0; s < n; s++) {
+            if (!star[s]) continue;
+            double sx = x[s], sy = y[s];
+            for (int i = 0; i < n; i++) {
+                if (star[i] || dead[i] || !touching(s, i)) continue;
+                merge(s, i);
+                x[s] = sx;
+                y[s] = sy;
+                absorbed++;
+            }
+        }
+    }
+
+    private void mergeBodies() {
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        double maxR = 0;
+        for (int i = 0; i < n; i++) {
+            if (star[i] || dead[i]) continue;
+            minX = Math.min(minX, x[i]);
+            minY = Math.min(minY, y[i]);
+            maxX = Math.max(maxX, x[i]);
+            maxY = Math.max(maxY, y[i]);
+            maxR = Math.max(maxR, r[i]);
+        }
+        if (maxR == 0) return;
+        // Grow the cells with the largest body so a query spans few cells
+        grid.build(x, y, n, minX, minY, maxX + 1, maxY + 1, Math.max(cellSize, maxR));
+
+        for (int i = 0; i < n; i++) {
+            if (star[i] || dead[i]) continue;
+            // A neighbor can be up to r[i] + maxR away
+            double reach = r[i] + maxR;
+            int c0 = grid.cellX(x[i] - reach), c1 = grid.cellX(x[i] + reach);
+            int r0 = grid.cellY(y[i] - reach), r1 = grid.cellY(y[i] + reach);
+            for (int row = r0; row <= r1; row++) {
+                for (int col = c0; col <= c1; col++) {
+                    for (int k = grid.start(col, row); k < grid.end(col, row); k++) {
+                        int j = grid.item(k);
+                        if (j <= i || star[j] || dead[j] || !touching(i, j)) continue;
+                        merge(i, j);
+                        merges++;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Structure-of-arrays storage for the simulation bodies, used by the
+ * engine instead of a List when list = store (BodyStore, heap arrays) or
+ * list = offheap (OffHeapBodyStore, one direct buffer). Bodies are
+ * addressed by index; culling keeps the survivors in order, so if the
+ * star is added first it stays at index 0.
+ */
+public interface ColumnStore {
+
+    /**
+     * Current number of bodies in the store.
+     * @return size
+     */
+    public int size();
+
+    /**
+     * Add a body with the given mass to the end of the store. Position and
+     * velocity may be fractional, e.g. when restoring a checkpoint.
+     * @return index of the new body
+     */
+    public int add(double x, double y, double vx, double vy, int size, double mass, boolean isStar);
+
+    /**
+     * Add a body to the end of the store.
+     * @param x initial x position
+     * @param y initial y position
+     * @param vx initial x velocity
+     * @param vy initial y velocity
+     * @param size diameter when drawn
+     * @param isStar whether this body is the central star
+     * @return index of the new body
+     */
+    public default int add(int x, int y, int vx, int vy, int size, boolean isStar) {
+        return add(x, y, vx, vy, size, 1, isStar);
+    }
+
+    /**
+     * Remove the body at index by moving the last body into its slot.
+     * @param index index to remove
+     * @throws Exception on invalid index
+     */
+    public void remove(int index) throws Exception;
+
+    /**
+     * Remove all bodies from the store.
+     */
+    public void clear();
+
+    /**
+     * Getters and setters by index. These do not check bounds.
+     */
+    public int getX(int i);
+    public int getY(int i);
+    public int getVx(int i);
+    public int getVy(int i);
+    public double getPreciseX(int i);
+    public double getPreciseY(int i);
+    public double getPreciseVx(int i);
+    public double getPreciseVy(int i);
+    public int getSize(int i);
+    public double getMass(int i);
+    public boolean isStar(int i);
+
+    public void setVx(int i, int v);
+    public void setVy(int i, int v);
+
+    /**
+     * Add an acceleration to the velocity of the body at index.
+     */
+    public void accelerate(int i, double ax, double ay);
+
+    /**
+     * Advance every body by its velocity and remove non-star bodies that
+     * end up outside [minX, maxX] x [minY, maxY], keeping the survivors in
+     * order.
+     * @return number of bodies removed
+     */
+    public int step(int minX, int minY, int maxX, int maxY);
+
+    /**
+     * Same as step(), but moved and culled in chunks on the pool. The
+     * result is the same as the sequential step.
+     * @return number of bodies removed
+     */
+    public int step(int minX, int minY, int maxX, int maxY, ForkJoinPool pool, int threads);
+
+    /**
+     * Add the bodies in [lo, hi) to stats.
+     * @param stats accumulator
+     * @param lo first index, inclusive
+     * @param hi last index, exclusive
+     */
+    public void addStats(BodyStats stats, int lo, int hi);
+
+    /**
+     * Remove every body whose flag is set, keeping the others in order.
+     * @param dead one flag per body, by index
+     * @return number of bodies removed
+     */
+    public int removeMarked(boolean[] dead);
+
+    /**
+     * Return a Body view of the body at index. The view reads and writes
+     * the store directly and is only valid until the store is next modified.
+     * @param index body index
+     * @return view of the body
+     * @throws Exception on invalid index
+     */
+    public Body view(int index) throws Exception;
+
+    /**
+     * Return an iterator over the bodies. The same Body view is reused for
+     * every call to next(), so callers must not hold on to it.
+     * @return iterator
+     */
+    public Iterator<Body> iterator();
+}
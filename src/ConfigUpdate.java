@@ -0,0 +1,177 @@
+import java.util.Properties;
+
+/**
+ * Validated set of the settings that can change while the simulation is
+ * running. A ConfigUpdate is built from a re-read properties file and
+ * handed to SimulationEngine.requestUpdate(), which applies all of it at
+ * the start of the next tick.
+ *
+ * Settings that shape the engine itself (list, threads, gravity,
+ * collisions, seed, window and star placement) are listed in
+ * RESTART_KEYS and need a restart. parseStartup() checks them as well,
+ * for the first load.
+ */
+public class ConfigUpdate {
+
+    public static final String[] RESTART_KEYS = {
+        "list", "step_kernel", "cull", "threads", "seed", "gravity", "gravity_solver", "theta",
+        "distance_scale", "gravity_constant", "collisions",
+        "window_size_x", "window_size_y", "star_position_x", "star_position_y",
+        "star_size", "star_mass"
+    };
+
+    final double simHz, renderHz;
+    final int maxCatchUp;
+    final double genX, genY;
+    final int bodySize;
+    final int bodyVelocity;
+    final double bodyMass;
+    final int starVx, starVy;
+    final int densityThreshold;
+
+    private ConfigUpdate(double simHz, double renderHz, int maxCatchUp, double genX, double genY, int bodySize, int bodyVelocity,
+                         double bodyMass, int starVx, int starVy, int densityThreshold) {
+        this.simHz = simHz;
+        this.renderHz = renderHz;
+        this.maxCatchUp = maxCatchUp;
+        this.genX = genX;
+        this.genY = genY;
+        this.bodySize = bodySize;
+        this.bodyVelocity = bodyVelocity;
+        this.bodyMass = bodyMass;
+        this.starVx = starVx;
+        this.starVy = starVy;
+        this.densityThreshold = densityThreshold;
+    }
+
+    /**
+     * Parse and validate the reloadable settings.
+     * @param prop properties to read
+     * @param errors receives one line per invalid value
+     * @return the update, or null if any value was invalid
+     */
+    public static ConfigUpdate parse(Properties prop, StringBuilder errors) {
+        int before = errors.length();
+        // timer_delay is the step and repaint period from before sim_hz
+        // and render_hz existed, and is their default
+        int timerDelay = parseInt(prop, "timer_delay", "75", 1, Integer.MAX_VALUE, errors);
+        String legacyHz = Double.toString(1000.0 / Math.max(1, timerDelay));
+        double simHz = parseDouble(prop, "sim_hz", legacyHz, 0.01, 1e6, errors);
+        double renderHz = parseDouble(prop, "render_hz", legacyHz, 0.01, 1000, errors);
+        int maxCatchUp = parseInt(prop, "max_catch_up", "10", 1, Integer.MAX_VALUE, errors);
+        double genX = parseDouble(prop, "gen_x", "0.06", 0, 1, errors);
+        double genY = parseDouble(prop, "gen_y", "0.06", 0, 1, errors);
+        int bodySize = parseInt(prop, "body_size", "10", 1, Integer.MAX_VALUE, errors);
+        int bodyVelocity = parseInt(prop, "body_velocity", "3", 0, Integer.MAX_VALUE, errors);
+        double bodyMass = parseDouble(prop, "body_mass", "1E21", Double.MIN_VALUE, Double.MAX_VALUE, errors);
+        int starVx = parseInt(prop, "star_velocity_x", "0", Integer.MIN_VALUE, Integer.MAX_VALUE, errors);
+        int starVy = parseInt(prop, "star_velocity_y", "0", Integer.MIN_VALUE, Integer.MAX_VALUE, errors);
+        int densityThreshold = parseInt(prop, "density_threshold", "20000", 0, Integer.MAX_VALUE, errors);
+        if (errors.length() != before) {
+            return null;
+        }
+        return new ConfigUpdate(simHz, renderHz, maxCatchUp, genX, genY, bodySize, bodyVelocity, bodyMass, starVx, starVy,
+                densityThreshold);
+    }
+
+    /**
+     * Parse and validate every setting, including the restart-only ones,
+     * as the engine reads them at startup.
+     * @param prop properties to read
+     * @return the reloadable settings
+     * @throws IllegalArgumentException listing each invalid key and value
+     */
+    public static ConfigUpdate parseStartup(Properties prop) {
+        StringBuilder errors = new StringBuilder();
+        ConfigUpdate update = parse(prop, errors);
+        parseChoice(prop, "list", "arraylist", errors,
+                "arraylist", "single", "double", "dummyhead", "unrolled", "ring", "store", "offheap");
+        parseChoice(prop, "step_kernel", "auto", errors, "auto", "scalar", "vector");
+        parseChoice(prop, "cull", "scan", errors, "scan", "wheel", "auto");
+        // ForkJoinPool's largest parallelism
+        parseInt(prop, "threads", "1", 1, 0x7fff, errors);
+        String seed = prop.getProperty("seed");
+        if (seed != null) {
+            try {
+                Long.parseLong(seed.trim());
+            } catch (NumberFormatException e) {
+                errors.append("seed = ").append(seed.trim()).append(": not an integer\n");
+            }
+        }
+        parseChoice(prop, "gravity", "off", errors, "off", "star", "nbody");
+        parseChoice(prop, "gravity_solver", "barneshut", errors, "barneshut", "brute");
+        parseDouble(prop, "theta", "0.5", 0, Double.MAX_VALUE, errors);
+        parseDouble(prop, "distance_scale", "3E5", Double.MIN_VALUE, Double.MAX_VALUE, errors);
+        parseDouble(prop, "gravity_constant", "6.674E-11", 0, Double.MAX_VALUE, errors);
+        parseChoice(prop, "collisions", "off", errors, "off", "on");
+        parseInt(prop, "window_size_x", "1024", 1, Integer.MAX_VALUE, errors);
+        parseInt(prop, "window_size_y", "768", 1, Integer.MAX_VALUE, errors);
+        parseInt(prop, "star_position_x", "512", Integer.MIN_VALUE, Integer.MAX_VALUE, errors);
+        parseInt(prop, "star_position_y", "384", Integer.MIN_VALUE, Integer.MAX_VALUE, errors);
+        parseInt(prop, "star_size", "30", 1, Integer.MAX_VALUE, errors);
+        parseDouble(prop, "star_mass", "2E29", Double.MIN_VALUE, Double.MAX_VALUE, errors);
+        if (errors.length() > 0) {
+            throw new IllegalArgumentException("Invalid settings:\n" + errors);
+        }
+        return update;
+    }
+
+    /**
+     * Names of the restart-only settings whose values differ between the
+     * two property sets, separated by spaces; empty if none.
+     */
+    public static String restartOnlyChanges(Properties before, Properties after) {
+        StringBuilder changed = new StringBuilder();
+        for (String key : RESTART_KEYS) {
+            String a = before.getProperty(key);
+            String b = after.getProperty(key);
+            if (a == null ? b != null : !a.trim().equals(b == null ? null : b.trim())) {
+                changed.append(changed.length() > 0 ? " " : "").append(key);
+            }
+        }
+        return changed.toString();
+    }
+
+    private static String parseChoice(Properties prop, String key, String def, StringBuilder errors,
+                                      String... choices) {
+        String value = prop.getProperty(key, def).trim();
+        for (String choice : choices) {
+            if (choice.equals(value)) {
+                return value;
+            }
+        }
+        errors.append(key).append(" = ").append(value).append(": expected one of ")
+                .append(String.join(", ", choices)).append('\n');
+        return def;
+    }
+
+    private static int parseInt(Properties prop, String key, String def, int min, int max,
+                                StringBuilder errors) {
+        String value = prop.getProperty(key, def).trim();
+        try {
+            int v = Integer.parseInt(value);
+            if (v < min || v > max) {
+                errors.append(key).append(" = ").append(value).append(": out of range\n");
+            }
+            return v;
+        } catch (NumberFormatException e) {
+            errors.append(key).append(" = ").append(value).append(": not an integer\n");
+            return 0;
+        }
+    }
+
+    private static double parseDouble(Properties prop, String key, String def, double min, double max,
+                                      StringBuilder errors) {
+        String value = prop.getProperty(key, def).trim();
+        try {
+            double v = Double.parseDouble(value);
+            if (!(v >= min && v <= max)) {
+                errors.append(key).append(" = ").append(value).append(": out of range\n");
+            }
+            return v;
+        } catch (NumberFormatException e) {
+            errors.append(key).append(" = ").append(value).append(": not a number\n");
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Properties;
+
+/**
+ * Watches a properties file with a WatchService and passes the re-read
+ * properties to a listener whenever the file changes. A change that leaves
+ * the file missing or unreadable is reported and skipped, never passed on
+ * as an empty set of properties. Runs on its own daemon thread.
+ */
+public class ConfigWatcher implements Runnable {
+
+    // Editors often write a file in several steps; wait for them to finish
+    private static final long SETTLE_MILLIS = 100;
+
+    /**
+     * Receives the properties after each change to the file.
+     */
+    public interface Listener {
+        void reload(Properties prop);
+    }
+
+    private final Path file;
+    private final Listener listener;
+    private WatchService watcher;
+    private Thread thread;
+
+    /**
+     * @param propfile path of the file to watch
+     * @param listener called on the watcher thread after each change
+     */
+    public ConfigWatcher(String propfile, Listener listener) {
+        this.file = Paths.get(propfile).toAbsolutePath();
+        this.listener = listener;
+    }
+
+    /**
+     * Start watching.
+     * @throws IOException if the directory cannot be watched
+     */
+    public synchronized void start() throws IOException {
+        if (thread != null) return;
+        watcher = FileSystems.getDefault().newWatchService();
+        file.getParent().register(watcher, StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_CREATE);
+        thread = new Thread(this, "config-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stop watching.
+     */
+    public synchronized void stop() throws IOException {
+        if (watcher != null) {
+            watcher.close();
+        }
+        thread = null;
+    }
+
+    public void run() {
+        try {
+            while (true) {
+                WatchKey key = watcher.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                            || file.getFileName().equals(event.context())) {
+                        changed = true;
+                    }
+                }
+                key.reset();
+                if (!changed) continue;
+
+                Thread.sleep(SETTLE_MILLIS);
+                // Drop the events from the rest of the same write
+                for (WatchKey k = watcher.poll(); k != null; k = watcher.poll()) {
+                    k.pollEvents();
+                    k.reset();
+                }
+                Properties prop;
+                try {
+                    prop = SimulationEngine.loadProperties(file.toString());
+                } catch (IOException e) {
+                    // Mid-save, e.g. deleted or renamed by the editor; the
+                    // next event for the file reloads it
+                    System.err.println("Config reload skipped: cannot read " + file + ": " + e.getMessage());
+                    continue;
+                }
+                listener.reload(prop);
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Stopped
+        }
+    }
+}
@@ -0,0 +1,254 @@
+import java.util.function.DoublePredicate;
+
+/**
+ * ArrayList of unboxed doubles. Values are kept in a double[] instead of as
+ * Double objects, so per-body columns such as positions, masses or
+ * accelerations can be rebuilt every tick without allocating once the
+ * array is big enough. Unlike List, the accessors throw the unchecked
+ * IndexOutOfBoundsException, so hot loops need no try/catch.
+ */
+public class DoubleArrayList {
+    private double[] arr;
+    private int size;
+
+    /**
+     * Constructor
+     */
+    public DoubleArrayList() {
+        arr = new double[10];
+        size = 0;
+    }
+
+    private void grow_array () {
+        resize(arr.length * 3 / 2 + 1);
+    }
+
+    private void resize (int capacity) {
+        double[] new_arr = new double[capacity];
+        System.arraycopy(arr, 0, new_arr, 0, size);
+        arr = new_arr;
+    }
+
+    /**
+     * Current number of elements in the list.
+     * @return size
+     */
+    public int size () {
+        return size;
+    }
+
+    /**
+     * Return element at given index.
+     * @param index retrieval index
+     * @return element at index
+     * @throws IndexOutOfBoundsException on invalid index
+     */
+    public double get (int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Invalid position");
+        }
+        return arr[index];
+    }
+
+    /**
+     * Replace the element at given index.
+     * @param index index to overwrite
+     * @param value new value
+     * @return previous value
+     * @throws IndexOutOfBoundsException on invalid index
+     */
+    public double set (int index, double value) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Invalid position");
+        }
+        double old = arr[index];
+        arr[index] = value;
+        return old;
+    }
+
+    /**
+     * Add element to the end of the list.
+     * @param value element to add
+     * @return true on success
+     */
+    public boolean add (double value) {
+        if (size == arr.length) {
+            grow_array();
+        }
+        arr[size++] = value;
+        return true;
+    }
+
+    /**
+     * Insert element at the given index.
+     * @param index insertion index, up to and including size
+     * @param value element to insert
+     * @throws IndexOutOfBoundsException on invalid index
+     */
+    public void add (int index, double value) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Invalid position");
+        }
+        if (size == arr.length) {
+            grow_array();
+        }
+        System.arraycopy(arr, index, arr, index + 1, size - index);
+        arr[index] = value;
+        size++;
+    }
+
+    /**
+     * Remove and return element at index.
+     * @param index index to remove
+     * @return removed element
+     * @throws IndexOutOfBoundsException on invalid index
+     */
+    public double remove (int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Invalid position");
+        }
+        double removed = arr[index];
+        System.arraycopy(arr, index + 1, arr, index, size - index - 1);
+        size--;
+        return removed;
+    }
+
+    /**
+     * Remove all elements from the list. The array is kept for reuse.
+     */
+    public void clear () {
+        size = 0;
+    }
+
+    /**
+     * Set every element to value.
+     * @param value value to store
+     */
+    public void fill (double value) {
+        java.util.Arrays.fill(arr, 0, size, value);
+    }
+
+    /**
+     * Set the elements from index from (inclusive) to to (exclusive) to
+     * value.
+     * @param from first index to set
+     * @param to index after the last one to set
+     * @param value value to store
+     * @throws IndexOutOfBoundsException on an invalid range
+     */
+    public void fill (int from, int to, double value) {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("Invalid position");
+        }
+        java.util.Arrays.fill(arr, from, to, value);
+    }
+
+    /**
+     * Resize the list to count elements, setting every element to value.
+     * Cheaper than clear() and count calls to add(), and the usual way to
+     * reset a per-body column at the start of a tick.
+     * @param count new size
+     * @param value value to store
+     */
+    public void reset (int count, double value) {
+        ensureCapacity(count);
+        java.util.Arrays.fill(arr, 0, count, value);
+        size = count;
+    }
+
+    /**
+     * Add every element of other to the end of the list, in order, with
+     * System.arraycopy.
+     * @param other list to copy from; may be this list
+     * @return true if any element was added
+     */
+    public boolean addAll (DoubleArrayList other) {
+        int n = other.size;
+        ensureCapacity(size + n);
+        System.arraycopy(other.arr, 0, arr, size, n);
+        size += n;
+        return n > 0;
+    }
+
+    /**
+     * Remove every element the filter accepts, compacting the survivors
+     * in a single pass. If the filter throws, the elements it did not get
+     * to are kept.
+     * @param filter returns true for elements to remove
+     * @return true if any element was removed
+     */
+    public boolean removeIf (DoublePredicate filter) {
+        int w = 0, r = 0;
+        int before = size;
+        try {
+            for (; r < size; r++) {
+                double value = arr[r];
+                if (!filter.test(value)) {
+                    arr[w++] = value;
+                }
+            }
+        } finally {
+            System.arraycopy(arr, r, arr, w, size - r);
+            size = w + size - r;
+        }
+        return size != before;
+    }
+
+    /**
+     * Make room for at least capacity elements.
+     * @param capacity number of elements to make room for
+     */
+    public void ensureCapacity (int capacity) {
+        if (capacity > arr.length) {
+            resize(Math.max(capacity, arr.length * 3 / 2 + 1));
+        }
+    }
+
+    /**
+     * Shrink the array to the current number of elements.
+     */
+    public void trimToSize () {
+        if (arr.length > size) {
+            resize(size);
+        }
+    }
+
+    /**
+     * Copy the elements into a new array.
+     * @return array of length size()
+     */
+    public double[] toArray () {
+        return java.util.Arrays.copyOf(arr, size);
+    }
+
+    /**
+     * Return an iterator for this list.
+     * @return iterator
+     */
+    public DoubleIterator iterator () {
+        return new ListIterator();
+    }
+
+    private class ListIterator implements DoubleIterator {
+        private int nextIndex = 0;
+        private boolean canRemove = false;
+
+        public boolean hasNext () {
+            return nextIndex < size;
+        }
+
+        public double nextDouble () {
+            if (nextIndex >= size) throw new RuntimeException("No more elements");
+            canRemove = true;
+            return arr[nextIndex++];
+        }
+
+        public void remove () {
+            if (!canRemove) throw new RuntimeException("No element to remove");
+            canRemove = false;
+            nextIndex--;
+            System.arraycopy(arr, nextIndex + 1, arr, nextIndex, size - nextIndex - 1);
+            size--;
+        }
+    }
+}
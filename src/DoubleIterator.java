@@ -0,0 +1,23 @@
+/**
+ * Iterator over a DoubleArrayList, returning unboxed values.
+ */
+public interface DoubleIterator {
+    /**
+     * @return true if there are more elements
+     */
+    public boolean hasNext();
+
+    /**
+     * Return the next element. Implementations may throw a runtime
+     * exception if called when no next element exists.
+     * @return next element
+     */
+    public double nextDouble();
+
+    /**
+     * Remove the element most recently returned by nextDouble(). May only
+     * be called once per call to nextDouble(); implementations throw a
+     * runtime exception otherwise.
+     */
+    public void remove();
+}
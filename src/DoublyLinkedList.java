@@ -1,3 +1,5 @@
+import java.util.function.Predicate;
+
 /**
  * Doubly-linked list implementation. Each node points to prev and next.
  * 
@@ -5,8 +7,8 @@
  * 
  * @param <T> element type
  */
-public class DoublyLinkedList<T> implements List<T>{
-    private class Node {
+public class DoublyLinkedList<T> implements HandleList<T>{
+    private class Node implements Handle<T> {
         T data;
         Node next;
         Node prev;
@@ -16,10 +18,24 @@ public class DoublyLinkedList<T> implements List<T>{
             next = null;
             prev = null;
         }
+
+        public T get() {
+            return data;
+        }
     }
 
     int size;
     Node head;
+    Node tail;
+
+    // Removed nodes, chained through next, reused by add
+    private Node free;
+    private int freeCount;
+
+    // Last node reached by index, so nearby indexed calls need not walk
+    // from an end; null when unknown
+    private Node finger;
+    private int fingerIndex;
 
     /**
      * Constructor
@@ -27,6 +43,61 @@ public class DoublyLinkedList<T> implements List<T>{
     public DoublyLinkedList() {
         size = 0;
         head = null;
+        tail = null;
+    }
+
+    /**
+     * Take a node from the free list, or allocate one if it is empty.
+     */
+    private Node newNode(T value) {
+        if (free == null) {
+            return new Node(value);
+        }
+        Node node = free;
+        free = node.next;
+        freeCount--;
+        node.data = value;
+        node.next = null;
+        return node;
+    }
+
+    /**
+     * Put an unlinked node on the free list for reuse.
+     */
+    private void recycle(Node node) {
+        node.data = null;
+        node.prev = null;
+        node.next = free;
+        free = node;
+        freeCount++;
+    }
+
+    /**
+     * Return the node at index, walking from whichever of head, tail and
+     * the finger is closest. Leaves the finger on the returned node.
+     */
+    private Node nodeAt(int index) {
+        Node node = head;
+        int i = 0;
+        int distance = index;
+        if (size - 1 - index < distance) {
+            node = tail;
+            i = size - 1;
+            distance = size - 1 - index;
+        }
+        if (finger != null && Math.abs(index - fingerIndex) < distance) {
+            node = finger;
+            i = fingerIndex;
+        }
+        for (; i < index; i++) {
+            node = node.next;
+        }
+        for (; i > index; i--) {
+            node = node.prev;
+        }
+        finger = node;
+        fingerIndex = index;
+        return node;
     }
 
     /**
@@ -44,12 +115,12 @@ public class DoublyLinkedList<T> implements List<T>{
         Node cur = head;
         while (cur != null) {
             Node n = cur.next;
-            cur.data = null;
-            cur.next = null;
-            cur.prev = null;
+            recycle(cur);
             cur = n;
         }
         head = null;
+        tail = null;
+        finger = null;
         size = 0;
     }
 
@@ -59,22 +130,53 @@ public class DoublyLinkedList<T> implements List<T>{
      * @return true on success
      */
     public boolean add(T element) {
+        Node newlast = newNode(element);
         if (size == 0) {
-            head = new Node(element);
-            ++size;
-            return true;
-        }
-        Node node = head;
-        while (node.next != null) {
-            node = node.next;
+            head = newlast;
+        } else {
+            newlast.prev = tail;
+            tail.next = newlast;
         }
-        Node newlast = new Node(element);
-        newlast.prev = node;
-        node.next = newlast;
+        tail = newlast;
         ++size;
         return true;
     }
 
+    /**
+     * Add element to the end of the list and return its node as a handle.
+     * @param element element to add
+     * @return handle for unlink()
+     */
+    public Handle<T> addLinked(T element) {
+        add(element);
+        return tail;
+    }
+
+    /**
+     * Unlink the node at a handle returned by addLinked(), in O(1).
+     * @param handle handle of an element still in the list
+     * @return removed element
+     */
+    public T unlink(Handle<T> handle) {
+        Node node = (Node) handle;
+        if (node.prev == null) {
+            head = node.next;
+        } else {
+            node.prev.next = node.next;
+        }
+        if (node.next == null) {
+            tail = node.prev;
+        } else {
+            node.next.prev = node.prev;
+        }
+        // Indices after the node shift down, so forget the finger
+        finger = null;
+        size--;
+        T val = node.data;
+        recycle(node);
+        return val;
+    }
+
     /**
      * Insert element at the given index.
      * @param index insertion index
@@ -86,24 +188,28 @@ public class DoublyLinkedList<T> implements List<T>{
             throw new Exception("Invalid position");
         }
         if (index == 0) {
-            Node node = new Node(element);
+            Node node = newNode(element);
             node.next = head;
             if (head != null) {
                 head.prev = node;
+            } else {
+                tail = node;
             }
             head = node;
+            fingerIndex++;
         } else {
-            Node node = new Node(element);
-            Node prev = head;
-            for (int i = 0; i < index-1; i++) {
-                prev = prev.next;
-            }
+            Node node = newNode(element);
+            Node prev = nodeAt(index - 1);
             node.next = prev.next;
             if (prev.next != null) {
                 prev.next.prev = node;
+            } else {
+                tail = node;
             }
             node.prev = prev;
             prev.next = node;
+            finger = node;
+            fingerIndex = index;
         }
         size++;
     }
@@ -123,21 +229,31 @@ public class DoublyLinkedList<T> implements List<T>{
             head = head.next;
             if (head != null) {
                 head.prev = null;
+            } else {
+                tail = null;
+            }
+            if (finger == node) {
+                finger = null;
             }
+            fingerIndex--;
             size--;
-            return node.data;
+            T val = node.data;
+            recycle(node);
+            return val;
         } else {
-            Node prev = head;
-            for (int i = 0; i < index-1; i++) {
-                prev = prev.next;
-            }
+            // The finger stays on prev, which keeps its index
+            Node prev = nodeAt(index - 1);
             Node node = prev.next;
             prev.next = node.next;
             if (node.next != null) {
                 node.next.prev = prev;
+            } else {
+                tail = prev;
             }
             size--;
-            return node.data;
+            T val = node.data;
+            recycle(node);
+            return val;
         }
     }
 
@@ -151,11 +267,71 @@ public class DoublyLinkedList<T> implements List<T>{
         if( index < 0 || index >= size) {
             throw new Exception("Invalid position");
         }
-        Node current = head;
-        for (int i = 0; i < index; i++) {
-            current = current.next;
+        return nodeAt(index).data;
+    }
+
+    /**
+     * Add every element of other to the end of the list, in order.
+     * @param other list to copy from; may be this list
+     * @return true if any element was added
+     */
+    public boolean addAll(List<T> other) {
+        int n = other.size();
+        Iterator<T> it = other.iterator();
+        for (int i = 0; i < n; i++) {
+            add(it.next());
+        }
+        return n > 0;
+    }
+
+    /**
+     * Remove every element the filter accepts, in one pass. Removed nodes
+     * are unlinked in place and kept for reuse.
+     * @param filter returns true for elements to remove
+     * @return true if any element was removed
+     */
+    public boolean removeIf(Predicate<? super T> filter) {
+        int before = size;
+        finger = null;
+        Node curr = head;
+        while (curr != null) {
+            Node next = curr.next;
+            if (filter.test(curr.data)) {
+                if (curr.prev == null) {
+                    head = next;
+                } else {
+                    curr.prev.next = next;
+                }
+                if (next == null) {
+                    tail = curr.prev;
+                } else {
+                    next.prev = curr.prev;
+                }
+                recycle(curr);
+                size--;
+            }
+            curr = next;
+        }
+        return size != before;
+    }
+
+    /**
+     * Make room for at least capacity elements by putting spare nodes on
+     * the free list.
+     * @param capacity number of elements to make room for
+     */
+    public void ensureCapacity(int capacity) {
+        while (size + freeCount < capacity) {
+            recycle(new Node(null));
         }
-        return current.data;
+    }
+
+    /**
+     * Drop the spare nodes kept for reuse.
+     */
+    public void trimToSize() {
+        free = null;
+        freeCount = 0;
     }
 
     /**
@@ -169,6 +345,7 @@ public class DoublyLinkedList<T> implements List<T>{
     
     private class ListIterator implements Iterator<T> {
         private Node node = head;
+        private Node last = null;
 
         public boolean hasNext() {
             return node != null;
@@ -176,9 +353,28 @@ public class DoublyLinkedList<T> implements List<T>{
 
         public T next() {
             if (node == null) throw new RuntimeException("No more elements");
+            last = node;
             T val = node.data;
             node = node.next;
             return val;
         }
+
+        public void remove() {
+            if (last == null) throw new RuntimeException("No element to remove");
+            if (last.prev == null) {
+                head = last.next;
+            } else {
+                last.prev.next = last.next;
+            }
+            if (last.next == null) {
+                tail = last.prev;
+            } else {
+                last.next.prev = last.prev;
+            }
+            recycle(last);
+            last = null;
+            finger = null;
+            size--;
+        }
     }
 }
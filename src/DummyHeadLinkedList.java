@@ -1,3 +1,5 @@
+import java.util.function.Predicate;
+
 public class DummyHeadLinkedList<T> implements List<T> {
     /**
      * Linked list implementation that uses a dummy head node to simplify
@@ -20,12 +22,87 @@ public class DummyHeadLinkedList<T> implements List<T> {
     int size;
     Node head;
 
+    // Removed nodes, chained through next, reused by add
+    private Node free;
+    private int freeCount;
+    // Last real node, or the dummy head when the list is empty
+    Node tail;
+
+    // Last node reached by index, so nearby indexed calls need not walk
+    // from head; the dummy head (index -1) when unknown
+    private Node finger;
+    private int fingerIndex;
+
     /**
      * Constructor
      */
     public DummyHeadLinkedList() {
         size = 0;
         head = new Node(null);
+        tail = head;
+        finger = head;
+        fingerIndex = -1;
+    }
+
+    /**
+     * Return the node at index, or the dummy head for -1, walking from the
+     * finger when it is at or before index and from the dummy head
+     * otherwise. The last node is the tail. Leaves the finger on the
+     * returned node.
+     */
+    private Node nodeAt(int index) {
+        Node node;
+        int i;
+        if (index == size - 1) {
+            node = tail;
+            i = index;
+        } else if (fingerIndex <= index) {
+            node = finger;
+            i = fingerIndex;
+        } else {
+            node = head;
+            i = -1;
+        }
+        for (; i < index; i++) {
+            node = node.next;
+        }
+        finger = node;
+        fingerIndex = index;
+        return node;
+    }
+
+    /**
+     * Point the finger back at the dummy head, after a change that may
+     * have removed its node.
+     */
+    private void resetFinger() {
+        finger = head;
+        fingerIndex = -1;
+    }
+
+    /**
+     * Take a node from the free list, or allocate one if it is empty.
+     */
+    private Node newNode(T value) {
+        if (free == null) {
+            return new Node(value);
+        }
+        Node node = free;
+        free = node.next;
+        freeCount--;
+        node.data = value;
+        node.next = null;
+        return node;
+    }
+
+    /**
+     * Put an unlinked node on the free list for reuse.
+     */
+    private void recycle(Node node) {
+        node.data = null;
+        node.next = free;
+        free = node;
+        freeCount++;
     }
 
     /**
@@ -44,10 +121,11 @@ public class DummyHeadLinkedList<T> implements List<T> {
         head.next = null;
         while (cur != null) {
             Node n = cur.next;
-            cur.data = null;
-            cur.next = null;
+            recycle(cur);
             cur = n;
         }
+        tail = head;
+        resetFinger();
         size = 0;
     }
 
@@ -57,13 +135,9 @@ public class DummyHeadLinkedList<T> implements List<T> {
      * @return true on success
      */
     public boolean add(T element) {
-        Node node = head;
-        while (node.next != null) {
-            node = node.next;
-        }
-        Node newlast = new Node(element);
-        newlast.next = null;
-        node.next = newlast;
+        Node newlast = newNode(element);
+        tail.next = newlast;
+        tail = newlast;
         ++size;
         return true;
     }
@@ -78,13 +152,15 @@ public class DummyHeadLinkedList<T> implements List<T> {
         if( index < 0 || index > size) {
             throw new Exception("Invalid position");
         }
-        Node prev = head;
-        for (int i = 0; i < index; i++) {
-            prev = prev.next;
-        }
-        Node node = new Node(element);
+        Node prev = nodeAt(index - 1);
+        Node node = newNode(element);
         node.next = prev.next;
         prev.next = node;
+        if (prev == tail) {
+            tail = node;
+        }
+        finger = node;
+        fingerIndex = index;
         size++;
     }
 
@@ -98,11 +174,7 @@ public class DummyHeadLinkedList<T> implements List<T> {
         if (index < 0 || index >= size) {
             throw new Exception("Invalid position");
         }
-        Node current = head.next;
-        for (int i = 0; i < index; i++) {
-            current = current.next;
-        }
-        return current.data;
+        return nodeAt(index).data;
     }
 
     /**
@@ -115,14 +187,78 @@ public class DummyHeadLinkedList<T> implements List<T> {
         if (index < 0 || index >= size) {
             throw new Exception("Invalid position");
         }
-        Node prev = head;
-        for (int i = 0; i < index; i++) {
-            prev = prev.next;
-        }
+        // The finger stays on prev, which keeps its index
+        Node prev = nodeAt(index - 1);
         Node toRemove = prev.next;
         prev.next = toRemove.next;
+        if (toRemove == tail) {
+            tail = prev;
+        }
         size--;
-        return toRemove.data;
+        T val = toRemove.data;
+        recycle(toRemove);
+        return val;
+    }
+
+    /**
+     * Add every element of other to the end of the list, in order.
+     * @param other list to copy from; may be this list
+     * @return true if any element was added
+     */
+    public boolean addAll(List<T> other) {
+        int n = other.size();
+        Iterator<T> it = other.iterator();
+        for (int i = 0; i < n; i++) {
+            add(it.next());
+        }
+        return n > 0;
+    }
+
+    /**
+     * Remove every element the filter accepts, in one pass. Removed nodes
+     * are unlinked in place and kept for reuse.
+     * @param filter returns true for elements to remove
+     * @return true if any element was removed
+     */
+    public boolean removeIf(Predicate<? super T> filter) {
+        int before = size;
+        resetFinger();
+        Node prev = head;
+        Node curr = head.next;
+        while (curr != null) {
+            Node next = curr.next;
+            if (filter.test(curr.data)) {
+                prev.next = next;
+                if (curr == tail) {
+                    tail = prev;
+                }
+                recycle(curr);
+                size--;
+            } else {
+                prev = curr;
+            }
+            curr = next;
+        }
+        return size != before;
+    }
+
+    /**
+     * Make room for at least capacity elements by putting spare nodes on
+     * the free list.
+     * @param capacity number of elements to make room for
+     */
+    public void ensureCapacity(int capacity) {
+        while (size + freeCount < capacity) {
+            recycle(new Node(null));
+        }
+    }
+
+    /**
+     * Drop the spare nodes kept for reuse.
+     */
+    public void trimToSize() {
+        free = null;
+        freeCount = 0;
     }
 
     /**
@@ -135,6 +271,9 @@ public class DummyHeadLinkedList<T> implements List<T> {
 
     private class ListIterator implements Iterator<T> {
         private Node node = head.next;
+        // Node before the last one returned; starts at the dummy head
+        private Node prev = head;
+        private boolean canRemove = false;
 
         public boolean hasNext() {
             return node != null;
@@ -142,9 +281,24 @@ public class DummyHeadLinkedList<T> implements List<T> {
 
         public T next() {
             if (node == null) throw new RuntimeException("No more elements");
+            if (canRemove) prev = prev.next;
+            canRemove = true;
             T val = node.data;
             node = node.next;
             return val;
         }
+
+        public void remove() {
+            if (!canRemove) throw new RuntimeException("No element to remove");
+            Node toRemove = prev.next;
+            prev.next = node;
+            if (toRemove == tail) {
+                tail = prev;
+            }
+            recycle(toRemove);
+            canRemove = false;
+            resetFinger();
+            size--;
+        }
     }
 }
\ No newline at end of file
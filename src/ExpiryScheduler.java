@@ -0,0 +1,182 @@
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Culls bodies by predicted exit tick instead of testing every body every
+ * tick. When a body is scheduled, the first tick at which its straight
+ * line path takes it outside the cull bounds is computed and the body is
+ * put on a TimingWheel for that tick; advance() then only looks at the
+ * bodies that come due, and hands back the ones that leave so the caller
+ * can remove them directly.
+ *
+ * The prediction errs one tick early, so that rounding in p + k * v
+ * against the sum of k moves can never make it late. A body that comes
+ * due is checked with the engine's exact test and is scheduled again if
+ * it is still inside, so culling happens on exactly the same tick as a
+ * full scan.
+ *
+ * A prediction only holds while the velocity does not change. Body calls
+ * reschedule() from its velocity and state setters, so gravity and
+ * collisions stay correct, at the cost of one reschedule per change. With
+ * gravity on that is every body every tick, which costs more than a scan.
+ */
+public class ExpiryScheduler {
+
+    // Predictions further out than this are treated as never
+    static final long NEVER = 1L << 53;
+
+    private final TimingWheel<Body> wheel;
+    private int minX, minY, maxX, maxY;
+
+    // Bodies flagged by the last advance(), in the order they came due
+    private Body[] expired = new Body[16];
+    private int expiredCount;
+    private final Consumer<TimingWheel.Entry<Body>> due = this::due;
+
+    /**
+     * @param now current tick: the number of moves made so far
+     * @param minX smallest x a body can have and stay, and so on
+     */
+    public ExpiryScheduler(long now, int minX, int minY, int maxX, int maxY) {
+        wheel = new TimingWheel<>(now);
+        setBounds(minX, minY, maxX, maxY);
+    }
+
+    /**
+     * Change the cull bounds. Bodies already scheduled keep their
+     * predictions, so the caller must schedule them again.
+     */
+    public void setBounds(int minX, int minY, int maxX, int maxY) {
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+    }
+
+    /**
+     * @return number of bodies waiting on the wheel
+     */
+    public int size() {
+        return wheel.size();
+    }
+
+    /**
+     * Start tracking a body, or recompute its exit tick. The star is never
+     * culled and is not tracked.
+     * @param b body whose position and velocity are current
+     */
+    public void schedule(Body b) {
+        schedule(b, wheel.getNow());
+    }
+
+    /**
+     * Schedule a body whose position is the one at tick base.
+     */
+    private void schedule(Body b, long base) {
+        if (b.isStar()) return;
+        if (b.expiry == null) {
+            b.expiry = new TimingWheel.Entry<>(b);
+        }
+        b.scheduler = this;
+        b.expired = false;
+        long ticks = ticksToExit(b);
+        if (ticks >= NEVER) {
+            // Not moving: only a velocity change can make it leave
+            wheel.cancel(b.expiry);
+        } else {
+            wheel.schedule(b.expiry, base + ticks);
+        }
+    }
+
+    /**
+     * Recompute the exit tick after the body's velocity or position
+     * changed. Called by Body.
+     */
+    void reschedule(Body b) {
+        schedule(b);
+    }
+
+    /**
+     * Stop tracking a body, e.g. before it goes back to the pool.
+     * @param b tracked body
+     */
+    public void cancel(Body b) {
+        if (b.expiry != null) {
+            wheel.cancel(b.expiry);
+        }
+        b.scheduler = null;
+    }
+
+    /**
+     * Advance to the given tick, one tick ahead of the bodies, and flag
+     * (Body.expired) those that will be outside the bounds after their
+     * next move. The caller then drops the flagged ones, which getExpired()
+     * returns, and moves the rest. The flagged bodies are no longer on the
+     * wheel.
+     * @param tick tick the bodies are about to reach
+     * @return number of bodies flagged
+     */
+    public int advance(long tick) {
+        Arrays.fill(expired, 0, expiredCount, null);
+        expiredCount = 0;
+        wheel.advance(tick, due);
+        return expiredCount;
+    }
+
+    /**
+     * Body flagged by the last call to advance().
+     * @param i index, less than the count advance() returned
+     * @return flagged body
+     */
+    public Body getExpired(int i) {
+        return expired[i];
+    }
+
+    private void due(TimingWheel.Entry<Body> e) {
+        Body b = e.getValue();
+        // Where the next move puts it; move() computes the same sums
+        double bx = b.getPreciseX() + b.getPreciseVx();
+        double by = b.getPreciseY() + b.getPreciseVy();
+        if (bx < minX || bx > maxX || by < minY || by > maxY) {
+            b.expired = true;
+            if (expiredCount == expired.length) {
+                expired = Arrays.copyOf(expired, expired.length * 3 / 2 + 1);
+            }
+            expired[expiredCount++] = b;
+        } else {
+            // The body has not moved yet, so its position is the previous tick's
+            schedule(b, wheel.getNow() - 1);
+        }
+    }
+
+    /**
+     * Moves until one before the body is first outside the bounds, at
+     * least 1, or NEVER.
+     */
+    private long ticksToExit(Body b) {
+        return Math.max(1, Math.min(
+                axisTicks(b.getPreciseX(), b.getPreciseVx(), minX, maxX),
+                axisTicks(b.getPreciseY(), b.getPreciseVy(), minY, maxY)));
+    }
+
+    /**
+     * One less than the smallest k with p + k * v outside [min, max], or 1
+     * if the next move already takes p outside.
+     */
+    private static long axisTicks(double p, double v, int min, int max) {
+        double next = p + v;
+        if (next < min || next > max) {
+            // Outside already, e.g. merged there, even if heading back in
+            return 1;
+        }
+        double k;
+        if (v < 0) {
+            k = Math.floor((p - min) / -v);
+        } else if (v > 0) {
+            k = Math.floor((max - p) / v);
+        } else {
+            return NEVER;
+        }
+        return k >= NEVER ? NEVER : (long) k;
+    }
+}
@@ -0,0 +1,216 @@
+import java.util.Properties;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Newtonian gravity for the simulation. Masses are the bodies' own (set
+ * from body_mass and star_mass when they are created); positions are body
+ * centers in pixels and one tick is one second, with distance_scale giving
+ * the meters per pixel.
+ *
+ * Modes (property gravity):
+ *   off   - no gravity, bodies move in straight lines
+ *   star  - only the star attracts the bodies, O(n)
+ *   nbody - every body attracts every other body
+ *
+ * In nbody mode, gravity_solver selects barneshut (a quadtree rebuilt each
+ * tick, O(n log n), accuracy controlled by theta) or brute (the exact O(n^2)
+ * reference).
+ */
+public class Gravity {
+
+    protected String mode;
+    protected String solver;
+    protected double theta;
+
+    // G / distance_scale^3, giving accelerations in pixels per tick squared
+    protected double k;
+
+    // Squared softening length, so close passes do not blow up
+    protected double soft2;
+
+    private double[] x = new double[16], y = new double[16], m = new double[16];
+
+    // Accelerations by body index, reset to zero at the start of each pass
+    private final DoubleArrayList ax = new DoubleArrayList(), ay = new DoubleArrayList();
+    private int n;
+    private int starIndex;
+
+    private final QuadTree tree = new QuadTree();
+    private int[] stack = new int[64];
+    private final double[] out = new double[2];
+
+    private ForkJoinPool pool;
+    private int threads = 1;
+
+    // Parallel force pass, with a tree walk stack and result per chunk,
+    // set up with the pool and reused every tick
+    private ParallelChunks.Runner accelRunner;
+    private int[][] chunkStacks;
+    private double[][] chunkOuts;
+
+    /**
+     * Read the gravity settings from the simulation properties.
+     * @param prop simulation properties
+     * @param bodySize body diameter, used as the softening length
+     */
+    public Gravity(Properties prop, int bodySize) {
+        mode = prop.getProperty("gravity", "off").trim();
+        solver = prop.getProperty("gravity_solver", "barneshut").trim();
+        theta = Double.parseDouble(prop.getProperty("theta", "0.5").trim());
+        double g = Double.parseDouble(prop.getProperty("gravity_constant", "6.674E-11").trim());
+        double scale = Double.parseDouble(prop.getProperty("distance_scale", "3E5").trim());
+        k = g / (scale * scale * scale);
+        soft2 = (double) bodySize * bodySize;
+    }
+
+    /**
+     * Run the Barnes-Hut force pass on the given pool. The tree walk for
+     * each body is independent, so the result is the same as sequential.
+     * @param pool pool to use, or null for sequential
+     * @param threads number of worker threads in the pool
+     */
+    public void setParallelism(ForkJoinPool pool, int threads) {
+        this.pool = pool;
+        this.threads = threads;
+        if (pool == null) {
+            accelRunner = null;
+            return;
+        }
+        int chunks = ParallelChunks.maxChunks(threads);
+        chunkStacks = new int[chunks][64];
+        chunkOuts = new double[chunks][2];
+        accelRunner = new ParallelChunks.Runner(pool, chunks, this::accelChunk);
+    }
+
+    /**
+     * @return true unless gravity is off
+     */
+    public boolean isEnabled() {
+        return "star".equals(mode) || "nbody".equals(mode);
+    }
+
+    /**
+     * Compute this tick's accelerations and add them to the bodies'
+     * velocities. The iterator must visit the bodies in the same order
+     * each time it is requested.
+     * @param engine simulation whose bodies are accelerated
+     */
+    public void apply(SimulationEngine engine) {
+        compute(engine.iterator(), engine.size());
+        Iterator<Body> it = engine.iterator();
+        for (int i = 0; i < n && it.hasNext(); i++) {
+            it.next().accelerate(ax.get(i), ay.get(i));
+        }
+    }
+
+    /**
+     * Compute the accelerations for up to size bodies without applying
+     * them. Results are read back with getAx() and getAy().
+     * @param it iterator over the bodies
+     * @param size number of bodies
+     */
+    public void compute(Iterator<Body> it, int size) {
+        load(it, size);
+        if ("nbody".equals(mode)) {
+            if ("brute".equals(solver)) {
+                bruteForce();
+            } else {
+                barnesHut();
+            }
+        } else {
+            starOnly();
+        }
+    }
+
+    private void load(Iterator<Body> it, int size) {
+        if (x.length < size) {
+            int capacity = Math.max(size, x.length * 3 / 2 + 1);
+            x = new double[capacity];
+            y = new double[capacity];
+            m = new double[capacity];
+        }
+        n = 0;
+        starIndex = -1;
+        while (it.hasNext() && n < size) {
+            Body b = it.next();
+            double r = b.getSize() / 2.0;
+            x[n] = b.getPreciseX() + r;
+            y[n] = b.getPreciseY() + r;
+            m[n] = b.getMass();
+            if (b.isStar()) {
+                starIndex = n;
+            }
+            n++;
+        }
+        ax.reset(n, 0);
+        ay.reset(n, 0);
+    }
+
+    private void starOnly() {
+        if (starIndex < 0) return;
+        double sx = x[starIndex], sy = y[starIndex];
+        double km = k * m[starIndex];
+        for (int i = 0; i < n; i++) {
+            if (i == starIndex) continue;
+            double dx = sx - x[i], dy = sy - y[i];
+            double d2 = dx * dx + dy * dy + soft2;
+            double f = km / (d2 * Math.sqrt(d2));
+            ax.set(i, f * dx);
+            ay.set(i, f * dy);
+        }
+    }
+
+    private void bruteForce() {
+        // Each pair is visited once and both sides are updated
+        for (int i = 0; i < n; i++) {
+            double sumX = ax.get(i), sumY = ay.get(i);
+            for (int j = i + 1; j < n; j++) {
+                double dx = x[j] - x[i], dy = y[j] - y[i];
+                double d2 = dx * dx + dy * dy + soft2;
+                double inv = k / (d2 * Math.sqrt(d2));
+                sumX += inv * m[j] * dx;
+                sumY += inv * m[j] * dy;
+                ax.set(j, ax.get(j) - inv * m[i] * dx);
+                ay.set(j, ay.get(j) - inv * m[i] * dy);
+            }
+            ax.set(i, sumX);
+            ay.set(i, sumY);
+        }
+    }
+
+    private void barnesHut() {
+        tree.build(x, y, m, n);
+        int chunks = pool == null ? 1 : ParallelChunks.chunksFor(n, threads);
+        if (chunks <= 1) {
+            for (int i = 0; i < n; i++) {
+                stack = tree.accel(i, k, theta, soft2, stack, out);
+                ax.set(i, out[0]);
+                ay.set(i, out[1]);
+            }
+            return;
+        }
+        accelRunner.run(n, chunks);
+    }
+
+    /**
+     * Barnes-Hut accelerations for the bodies in [lo, hi), using the
+     * chunk's own stack, which is kept if the walk grew it.
+     */
+    private void accelChunk(int c, int lo, int hi) {
+        int[] chunkStack = chunkStacks[c];
+        double[] chunkOut = chunkOuts[c];
+        for (int i = lo; i < hi; i++) {
+            chunkStack = tree.accel(i, k, theta, soft2, chunkStack, chunkOut);
+            ax.set(i, chunkOut[0]);
+            ay.set(i, chunkOut[1]);
+        }
+        chunkStacks[c] = chunkStack;
+    }
+
+    /**
+     * Acceleration computed for the i-th body in the last call to
+     * compute() or apply(). Used to compare solvers.
+     */
+    public double getAx(int i) { return ax.get(i); }
+    public double getAy(int i) { return ay.get(i); }
+}
@@ -0,0 +1,37 @@
+/**
+ * List whose elements can be removed through a handle returned when they
+ * were added, in O(1) and without searching for them. The engine uses
+ * this to drop the bodies the expiry scheduler finds due to leave.
+ *
+ * @param <T> element type
+ */
+public interface HandleList<T> extends List<T> {
+
+    /**
+     * Position of one element in a HandleList. A handle is valid from the
+     * addLinked() call that returns it until its element is removed by
+     * any means; after that it must not be used.
+     *
+     * @param <T> element type
+     */
+    public interface Handle<T> {
+        /**
+         * @return element at this position
+         */
+        public T get();
+    }
+
+    /**
+     * Add element to the end of the list.
+     * @param element element to add
+     * @return handle for removing the element again
+     */
+    public Handle<T> addLinked(T element);
+
+    /**
+     * Remove the element at a handle returned by addLinked().
+     * @param handle handle of an element still in the list
+     * @return removed element
+     */
+    public T unlink(Handle<T> handle);
+}
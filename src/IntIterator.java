@@ -0,0 +1,23 @@
+/**
+ * Iterator over an IntArrayList, returning unboxed values.
+ */
+public interface IntIterator {
+    /**
+     * @return true if there are more elements
+     */
+    public boolean hasNext();
+
+    /**
+     * Return the next element. Implementations may throw a runtime
+     * exception if called when no next element exists.
+     * @return next element
+     */
+    public int nextInt();
+
+    /**
+     * Remove the element most recently returned by nextInt(). May only be
+     * called once per call to nextInt(); implementations throw a runtime
+     * exception otherwise.
+     */
+    public void remove();
+}
@@ -15,4 +15,11 @@ public interface Iterator<T> {
      * @return next element
      */
     public T next();
+
+    /**
+     * Remove the element most recently returned by next(). May only be
+     * called once per call to next(); implementations throw a runtime
+     * exception otherwise.
+     */
+    public void remove();
 }
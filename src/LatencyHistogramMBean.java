@@ -0,0 +1,13 @@
+/**
+ * JMX view of one LatencyHistogram, shown in JConsole under
+ * MassiveMotion:type=Phase.
+ */
+public interface LatencyHistogramMBean {
+    String getName();
+    long getCount();
+    double getMeanNanos();
+    long getP50Nanos();
+    long getP99Nanos();
+    long getMaxNanos();
+    void reset();
+}
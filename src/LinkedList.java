@@ -1,3 +1,5 @@
+import java.util.function.Predicate;
+
 /**
  * Linked list implementation implemented from Prof. Brizan's slides.
  * 
@@ -16,6 +18,16 @@ public class LinkedList<T> implements List<T> {
 
     int size;
     Node head;
+    Node tail;
+
+    // Removed nodes, chained through next, reused by add
+    private Node free;
+    private int freeCount;
+
+    // Last node reached by index, so nearby indexed calls need not walk
+    // from head; null when unknown
+    private Node finger;
+    private int fingerIndex;
 
     /**
      * Constructor
@@ -23,6 +35,58 @@ public class LinkedList<T> implements List<T> {
     public LinkedList() {
         size = 0;
         head = null;
+        tail = null;
+    }
+
+    /**
+     * Take a node from the free list, or allocate one if it is empty.
+     */
+    private Node newNode(T value) {
+        if (free == null) {
+            return new Node(value);
+        }
+        Node node = free;
+        free = node.next;
+        freeCount--;
+        node.data = value;
+        node.next = null;
+        return node;
+    }
+
+    /**
+     * Put an unlinked node on the free list for reuse.
+     */
+    private void recycle(Node node) {
+        node.data = null;
+        node.next = free;
+        free = node;
+        freeCount++;
+    }
+
+    /**
+     * Return the node at index, walking from the finger when it is at or
+     * before index and from head otherwise. The last node is the tail.
+     * Leaves the finger on the returned node.
+     */
+    private Node nodeAt(int index) {
+        Node node;
+        int i;
+        if (index == size - 1) {
+            node = tail;
+            i = index;
+        } else if (finger != null && fingerIndex <= index) {
+            node = finger;
+            i = fingerIndex;
+        } else {
+            node = head;
+            i = 0;
+        }
+        for (; i < index; i++) {
+            node = node.next;
+        }
+        finger = node;
+        fingerIndex = index;
+        return node;
     }
 
     /**
@@ -40,11 +104,12 @@ public class LinkedList<T> implements List<T> {
         Node curr = head;
         while (curr != null) {
             Node next = curr.next;
-            curr.data = null;
-            curr.next = null;
+            recycle(curr);
             curr = next;
         }
         head = null;
+        tail = null;
+        finger = null;
         size = 0;
     }
 
@@ -54,18 +119,13 @@ public class LinkedList<T> implements List<T> {
      * @return true on success
      */
     public boolean add(T element) {
+        Node newlast = newNode(element);
         if (size == 0) {
-            head = new Node(element);
-            ++size;
-            return true;
-        }
-        Node node = head;
-        while (node.next != null) {
-            node = node.next;
+            head = newlast;
+        } else {
+            tail.next = newlast;
         }
-        Node newlast = new Node(element);
-        newlast.next = null;
-        node.next = newlast;
+        tail = newlast;
         ++size;
         return true;
     }
@@ -81,17 +141,23 @@ public class LinkedList<T> implements List<T> {
             throw new Exception("Invalid position");
         }
         if (index == 0) {
-            Node node = new Node(element);
+            Node node = newNode(element);
             node.next = head;
             head = node;
-        } else {
-            Node node = new Node(element);
-            Node prev = head;
-            for (int i = 0; i < index-1; i++) {
-                prev = prev.next;
+            if (tail == null) {
+                tail = node;
             }
+            fingerIndex++;
+        } else {
+            Node node = newNode(element);
+            Node prev = nodeAt(index - 1);
             node.next = prev.next;
             prev.next = node;
+            if (prev == tail) {
+                tail = node;
+            }
+            finger = node;
+            fingerIndex = index;
         }
         size++;
     }
@@ -109,17 +175,29 @@ public class LinkedList<T> implements List<T> {
         if (index == 0) {
             Node node = head;
             head = head.next;
+            if (head == null) {
+                tail = null;
+            }
+            if (finger == node) {
+                finger = null;
+            }
+            fingerIndex--;
             size--;
-            return (T) node.data;
+            T val = node.data;
+            recycle(node);
+            return val;
         } else {
-            Node prev = head;
-            for (int i = 0; i < index-1; i++) {
-                prev = prev.next;
-            }
+            // The finger stays on prev, which keeps its index
+            Node prev = nodeAt(index - 1);
             Node node = prev.next;
             prev.next = node.next;
+            if (node == tail) {
+                tail = prev;
+            }
             size--;
-            return (T) node.data;
+            T val = node.data;
+            recycle(node);
+            return val;
         }
     }
 
@@ -133,11 +211,72 @@ public class LinkedList<T> implements List<T> {
         if(pos < 0 || pos >= size) {
             throw new Exception("Invalid position");
         }
+        return nodeAt(pos).data;
+    }
+
+    /**
+     * Add every element of other to the end of the list, in order.
+     * @param other list to copy from; may be this list
+     * @return true if any element was added
+     */
+    public boolean addAll(List<T> other) {
+        int n = other.size();
+        Iterator<T> it = other.iterator();
+        for (int i = 0; i < n; i++) {
+            add(it.next());
+        }
+        return n > 0;
+    }
+
+    /**
+     * Remove every element the filter accepts, in one pass. Removed nodes
+     * are unlinked in place and kept for reuse.
+     * @param filter returns true for elements to remove
+     * @return true if any element was removed
+     */
+    public boolean removeIf(Predicate<? super T> filter) {
+        int before = size;
+        finger = null;
+        Node prev = null;
         Node curr = head;
-        for(int i = 0; i < pos; i++) {
-            curr = curr.next;
+        while (curr != null) {
+            Node next = curr.next;
+            if (filter.test(curr.data)) {
+                if (prev == null) {
+                    head = next;
+                } else {
+                    prev.next = next;
+                }
+                if (curr == tail) {
+                    tail = prev;
+                }
+                recycle(curr);
+                size--;
+            } else {
+                prev = curr;
+            }
+            curr = next;
+        }
+        return size != before;
+    }
+
+    /**
+     * Make room for at least capacity elements by putting spare nodes on
+     * the free list.
+     * @param capacity number of elements to make room for
+     */
+    public void ensureCapacity(int capacity) {
+        while (size + freeCount < capacity) {
+            recycle(new Node(null));
         }
-        return (T) curr.data;
+    }
+
+    /**
+     * Drop the spare nodes kept for reuse.
+     */
+    public void trimToSize() {
+        free = null;
+        freeCount = 0;
     }
 
     /**
@@ -150,6 +289,9 @@ public class LinkedList<T> implements List<T> {
 
     private class ListIterator implements Iterator<T> {
         private Node node = head;
+        // Last node returned by next() and the node before it, for remove()
+        private Node last = null;
+        private Node beforeLast = null;
 
         public boolean hasNext() {
             return node != null;
@@ -157,10 +299,28 @@ public class LinkedList<T> implements List<T> {
 
         public T next() {
             if (node == null) throw new RuntimeException("No more elements");
+            if (last != null) beforeLast = last;
+            last = node;
             T val = node.data;
             node = node.next;
             return val;
         }
+
+        public void remove() {
+            if (last == null) throw new RuntimeException("No element to remove");
+            if (beforeLast == null) {
+                head = node;
+            } else {
+                beforeLast.next = node;
+            }
+            if (last == tail) {
+                tail = beforeLast;
+            }
+            recycle(last);
+            last = null;
+            finger = null;
+            size--;
+        }
     }
 
 }
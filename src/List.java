@@ -1,3 +1,8 @@
+import java.util.Spliterator;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
 /**
  * List interface given by the assignment.
  * Implementations provide basic add/get/remove functions
@@ -54,4 +59,58 @@ public interface List<T> {
      * Remove all elements from the list.
      */
     public void clear();
+
+    /**
+     * Add every element of other to the end of the list, in order.
+     * @param other list to copy from; may be this list
+     * @return true if any element was added
+     */
+    public boolean addAll (List<T> other);
+
+    /**
+     * Remove every element the filter accepts, in one pass. The filter is
+     * called exactly once per element, in iteration order.
+     * @param filter returns true for elements to remove
+     * @return true if any element was removed
+     */
+    public boolean removeIf (Predicate<? super T> filter);
+
+    /**
+     * Make room for at least capacity elements, so that adding up to that
+     * many does not allocate.
+     * @param capacity number of elements to make room for
+     */
+    public void ensureCapacity (int capacity);
+
+    /**
+     * Release any room held beyond the current elements.
+     */
+    public void trimToSize ();
+
+    /**
+     * Return a Spliterator over the elements, in order. The default splits
+     * the iterator into batches; array-backed lists override it to split
+     * by index range. The list must not be modified while it is in use.
+     * @return spliterator
+     */
+    public default Spliterator<T> spliterator () {
+        return new BatchSpliterator<>(iterator(), size());
+    }
+
+    /**
+     * @return sequential stream over the elements
+     */
+    public default Stream<T> stream () {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Return a parallel stream over the elements. It runs on the common
+     * ForkJoinPool, or on the pool of the task that starts the terminal
+     * operation.
+     * @return parallel stream
+     */
+    public default Stream<T> parallelStream () {
+        return StreamSupport.stream(spliterator(), true);
+    }
 }
@@ -2,212 +2,379 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.Properties;
 
 /**
- * MassiveMotion is the main simulation. It reads configuration from a
- * properties file, maintains a single List of Body objects (the first element
- * is the star), and advances the simulation using a Timer.
+ * MassiveMotion is the Swing front end of the simulation. It reads
+ * configuration from a properties file and owns a SimulationEngine holding
+ * the bodies (the first one is the star). The engine is stepped on its own
+ * thread by a SimulationRunner at sim_hz, and a Timer repaints the panel
+ * from the latest published Snapshot at render_hz. In replay mode a ReplayRunner plays a
+ * recorded TrajectoryLog into the snapshots instead.
  */
 public class MassiveMotion extends JPanel implements ActionListener {
 
     protected Timer tm;
 
-    protected int maxX, maxY;
+    protected SimulationEngine engine;
 
-    protected int starX, starY;
+    protected SnapshotBuffer snapshots;
+    protected SimulationRunner runner;
+    protected ReplayRunner replay;
 
-    protected int starSize;
+    // Repaint period in ms, from render_hz
+    protected volatile int timerDelay;
 
-    protected int starVx, starVy;
+    protected BodyRenderer renderer;
 
-    protected double genX, genY;
-
-    protected int bodySize;
-    protected int bodyVelocity;
- 
-    protected List<Body> bodies;
-
-    // Reusable container for survivors to avoid allocating a new list each tick
-    protected List<Body> survivors;
-
-    protected int timerDelay;
-
-    protected String listImpl;
+    // Properties as last applied, to detect restart-only changes on reload
+    protected Properties loadedProps;
+    protected ConfigWatcher watcher;
 
     /**
      * Create the panel simulation state from a properties file.
      * @param propfile path to a Java properties file containing keys such as
      *                 timer_delay, window_size_x, gen_x, body_size, list, etc.
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if a setting is invalid
      */
-    public MassiveMotion(String propfile) {
-        Properties prop = new Properties();
+    public MassiveMotion(String propfile) throws IOException {
+        Properties prop = SimulationEngine.loadProperties(propfile);
+        loadedProps = prop;
+
+        ConfigUpdate rates = ConfigUpdate.parseStartup(prop);
+        timerDelay = repaintDelay(rates.renderHz);
+        tm = new Timer(timerDelay, this);
+        renderer = new BodyRenderer(rates.densityThreshold);
+        engine = new SimulationEngine(prop);
+        snapshots = new SnapshotBuffer();
+        runner = new SimulationRunner(engine, snapshots, rates.simHz, rates.renderHz, rates.maxCatchUp, null);
+
+        watcher = new ConfigWatcher(propfile, this::reload);
         try {
-            InputStream is = new FileInputStream(propfile);
-            prop.load(is);
+            watcher.start();
         } catch (IOException e) {
-            e.printStackTrace();
+            System.err.println("Config hot-reload disabled: " + e.getMessage());
         }
+    }
 
-        try { 
-            timerDelay = Integer.parseInt(prop.getProperty("timer_delay", "75"));
-            tm = new Timer(timerDelay, this);
-            maxX = Integer.parseInt(prop.getProperty("window_size_x", "1024"));
-            maxY = Integer.parseInt(prop.getProperty("window_size_y", "768"));
-
-            starX = Integer.parseInt(prop.getProperty("star_position_x", "512"));
-            starY = Integer.parseInt(prop.getProperty("star_position_y", "384"));
-
-            starSize = Integer.parseInt(prop.getProperty("star_size", "30"));
-            starVx = Integer.parseInt(prop.getProperty("star_velocity_x", "0"));
-            starVy = Integer.parseInt(prop.getProperty("star_velocity_y", "0"));
-
-            genX = Double.parseDouble(prop.getProperty("gen_x", "0.06"));
-            genY = Double.parseDouble(prop.getProperty("gen_y", "0.06"));
-
-            bodySize = Integer.parseInt(prop.getProperty("body_size", "10"));
-            bodyVelocity = Integer.parseInt(prop.getProperty("body_velocity", "3"));
+    /**
+     * Create a panel that replays a recorded run instead of simulating.
+     * @param log recorded run, positioned at the first frame to show
+     * @param delay time between frames in ms
+     * @param speed recorded ticks per frame
+     */
+    public MassiveMotion(TrajectoryLog log, int delay, double speed) {
+        timerDelay = delay;
+        tm = new Timer(timerDelay, this);
+        renderer = new BodyRenderer(ConfigUpdate.parse(new Properties(), new StringBuilder()).densityThreshold);
+        snapshots = new SnapshotBuffer();
+        replay = new ReplayRunner(log, snapshots, delay, speed);
+    }
 
-            listImpl = prop.getProperty("list", "arraylist");
-        } catch (Exception e) {
-            e.printStackTrace();
+    /**
+     * Apply a re-read properties file. Invalid values reject the whole
+     * reload; restart-only settings are reported and left unchanged.
+     * Runs on the config watcher thread.
+     */
+    private void reload(Properties prop) {
+        StringBuilder errors = new StringBuilder();
+        ConfigUpdate update = ConfigUpdate.parse(prop, errors);
+        if (update == null) {
+            System.err.print("Config reload rejected:\n" + errors);
+            return;
         }
-        if ("arraylist".equals(listImpl)) {
-            bodies = new ArrayList<>();
-        } else if ("single".equals(listImpl)) {
-            bodies = new LinkedList<>();
-        } else if ("double".equals(listImpl)) {
-            bodies = new DoublyLinkedList<>();
-        } else if ("dummyhead".equals(listImpl)) {
-            bodies = new DummyHeadLinkedList<>();
+        String restart = ConfigUpdate.restartOnlyChanges(loadedProps, prop);
+        if (!restart.isEmpty()) {
+            System.err.println("Config reload: restart needed to change " + restart);
         }
+        engine.requestUpdate(update);
+        runner.setRates(update.simHz, update.renderHz, update.maxCatchUp);
+        renderer.setDensityThreshold(update.densityThreshold);
+        int delay = repaintDelay(update.renderHz);
+        if (delay != timerDelay) {
+            SwingUtilities.invokeLater(() -> rebuildTimer(delay));
+        }
+        System.out.println("Config reloaded");
+    }
 
-        if (bodies instanceof ArrayList) survivors = new ArrayList<>();
-        else if (bodies instanceof LinkedList) survivors = new LinkedList<>();
-        else if (bodies instanceof DoublyLinkedList) survivors = new DoublyLinkedList<>();
-        else if (bodies instanceof DummyHeadLinkedList) survivors = new DummyHeadLinkedList<>();
-        else survivors = new ArrayList<>();
-
-        Body star = new Body(starX, starY, starVx, starVy, starSize, true);
-        bodies.add(star);
+    /**
+     * Repaint timer delay in ms for a render rate.
+     */
+    private static int repaintDelay(double renderHz) {
+        return Math.max(1, (int) Math.round(1000 / renderHz));
+    }
 
+    /**
+     * Replace the repaint timer with one using the new delay. Runs on the EDT.
+     */
+    private void rebuildTimer(int delay) {
+        boolean running = tm.isRunning();
+        tm.stop();
+        timerDelay = delay;
+        tm = new Timer(timerDelay, this);
+        if (running) {
+            tm.start();
+        }
     }
 
     /**
-     * Paint all bodies. The star (first body) is drawn in red. This method
-     * also ensures the timer is started.
+     * Paint all bodies from the latest snapshot, interpolated between the
+     * previous and the current state by the part of a step that has
+     * passed since it was due.
+     * The star is drawn in red. Drawing is done by the BodyRenderer. This
+     * method also ensures the timer and simulation thread are started.
      */
     public void paintComponent(Graphics g) {
+        long start = System.nanoTime();
         super.paintComponent(g);
 
-        // Use iterator-based traversal so linked-list implementations are O(n)
-        Iterator<Body> iterator = bodies.iterator();
-        while (iterator.hasNext()) {
-            Body b = iterator.next();
-            g.setColor(b.isStar() ? Color.RED : Color.BLACK);
-            g.fillOval(b.getX(), b.getY(), b.getSize(), b.getSize());
+        Snapshot snap = snapshots.read();
+        renderer.paint(g, snap, snap.alpha(start), getWidth(), getHeight(), getGraphicsConfiguration());
+        if (engine != null) {
+            engine.getMetrics().paintTime.record(System.nanoTime() - start);
         }
 
         tm.start();
+        if (replay != null) {
+            replay.start();
+        } else {
+            runner.start();
+        }
     }
 
 
     /**
-     * Timer callback executed each epoch: spawns new bodies based on genX and genY probabilities,
-     * advances all bodies, removes off-screen bodies and requests repaint.
+     * Timer callback executed each frame: requests repaint. The engine is
+     * stepped independently on the simulation thread.
      */
     public void actionPerformed(ActionEvent actionEvent) {
-        try {
-            if (bodies.size() > 0) {
-                Body s = bodies.get(0);
-                s.setVx(starVx);
-                s.setVy(starVy);
+        repaint();
+    }
+
+    /**
+     * Restore a checkpoint into the engine and set up periodic
+     * checkpoints, as requested on the command line.
+     * @return false if the restore failed
+     */
+    private static boolean prepare(SimulationEngine engine, String restore,
+                                   long checkpointEvery, String checkpointFile) {
+        if (restore != null) {
+            try {
+                Checkpoint.read(engine, restore);
+                System.out.println("Restored " + engine.size() + " bodies at tick "
+                        + engine.getTick() + " from " + restore);
+            } catch (IOException e) {
+                System.err.println("Restore failed: " + e.getMessage());
+                return false;
             }
-        } catch (Exception e) {}
-
-        if (Math.random() < genX) {
-            boolean top = Math.random() < 0.5;
-            int x = (int) (Math.random() * maxX);
-            int y;
-            if (top) y = 0; else y = maxY - bodySize;
-            int bv = Math.max(1, bodyVelocity);
-            int vx = (int) (Math.random() * (2 * bv + 1)) - bv;
-            int vy;
-            if (top) {
-                // from top: move downward (positive vy)
-                vy = 1 + (int) (Math.random() * bv); // 1..bv
+        }
+        if (checkpointEvery > 0) {
+            engine.setCheckpoint(checkpointFile, checkpointEvery);
+        }
+        return true;
+    }
+
+    /**
+     * Run the engine without a window for the given number of ticks and
+     * print the throughput and final body count.
+     */
+    private static void runHeadless(SimulationEngine engine, int ticks) {
+        long start = System.nanoTime();
+        engine.step(ticks);
+        long elapsed = System.nanoTime() - start;
+        double seconds = elapsed / 1e9;
+        System.out.printf("Ran %d ticks in %.3f s (%.1f ticks/sec)%n",
+                ticks, seconds, seconds > 0 ? ticks / seconds : 0.0);
+        System.out.println("Seed: " + engine.getSeed());
+        System.out.println("Final body count: " + engine.size());
+        System.out.println("Final state: " + engine.stats());
+        System.out.println("Collisions: " + engine.getTotalMerges() + " merges, "
+                + engine.getTotalAbsorbed() + " absorbed by the star");
+        MassiveMotionMetrics metrics = engine.getMetrics();
+        System.out.printf("Spawned %d, culled %d, %.0f bytes allocated per tick%n",
+                metrics.getTotalSpawns(), metrics.getTotalCulls(), metrics.getMeanAllocatedBytes());
+        System.out.print(metrics.summary());
+    }
+
+    /**
+     * Takes the properties filename as the first
+     * command-line argument. Creates the JFrame and adds the MassiveMotion panel,
+     * or with --headless --ticks N runs the engine without a window.
+     * --restore file resumes from a checkpoint, and --checkpoint-every N
+     * writes one every N ticks (to --checkpoint-file, default
+     * MassiveMotion.ckpt). --record dir logs every tick for replay, and
+     * --replay dir plays such a log back (--speed X, --seek tick); the
+     * properties file is optional when replaying. Metrics are always
+     * published over JMX; --metrics-csv file also writes them to a CSV
+     * file every --metrics-interval ms (default 1000).
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: MassiveMotion <propfile> [--headless --ticks N]"
+                    + " [--restore file] [--checkpoint-every N] [--checkpoint-file file]"
+                    + " [--record dir] [--metrics-csv file] [--metrics-interval ms]");
+            System.err.println("       MassiveMotion [propfile] --replay dir [--speed X] [--seek tick]");
+            System.exit(1);
+        }
+        String propfile = args[0].startsWith("--") ? null : args[0];
+        boolean headless = false;
+        int ticks = 1000;
+        String restore = null;
+        long checkpointEvery = 0;
+        String checkpointFile = "MassiveMotion.ckpt";
+        String record = null;
+        String replayDir = null;
+        double speed = 1;
+        long seek = -1;
+        String metricsCsv = null;
+        long metricsInterval = 1000;
+        for (int i = propfile == null ? 0 : 1; i < args.length; i++) {
+            if ("--headless".equals(args[i])) {
+                headless = true;
+            } else if ("--ticks".equals(args[i]) && i + 1 < args.length) {
+                ticks = Integer.parseInt(args[++i]);
+            } else if ("--restore".equals(args[i]) && i + 1 < args.length) {
+                restore = args[++i];
+            } else if ("--checkpoint-every".equals(args[i]) && i + 1 < args.length) {
+                checkpointEvery = Long.parseLong(args[++i]);
+            } else if ("--checkpoint-file".equals(args[i]) && i + 1 < args.length) {
+                checkpointFile = args[++i];
+            } else if ("--record".equals(args[i]) && i + 1 < args.length) {
+                record = args[++i];
+            } else if ("--replay".equals(args[i]) && i + 1 < args.length) {
+                replayDir = args[++i];
+            } else if ("--speed".equals(args[i]) && i + 1 < args.length) {
+                speed = Double.parseDouble(args[++i]);
+            } else if ("--seek".equals(args[i]) && i + 1 < args.length) {
+                seek = Long.parseLong(args[++i]);
+            } else if ("--metrics-csv".equals(args[i]) && i + 1 < args.length) {
+                metricsCsv = args[++i];
+            } else if ("--metrics-interval".equals(args[i]) && i + 1 < args.length) {
+                metricsInterval = Long.parseLong(args[++i]);
             } else {
-                // from bottom: move upward (negative vy)
-                vy = - (1 + (int) (Math.random() * bv)); // -1..-bv
+                System.err.println("Unknown option: " + args[i]);
+                System.exit(1);
             }
-            bodies.add(new Body(x, y, vx, vy, bodySize, false));
-        }
-
-        if (Math.random() < genY) {
-            boolean left = Math.random() < 0.5;
-            int x;
-            if (left) x = 0; else x = maxX - bodySize;
-            int y = (int) (Math.random() * maxY);
-            int bv = Math.max(1, bodyVelocity);
-            int vy = (int) (Math.random() * (2 * bv + 1)) - bv;
-            int vx;
-            if (left) {
-                // from left: move right (positive vx)
-                vx = 1 + (int) (Math.random() * bv);
+        }
+
+        if (replayDir != null) {
+            replay(propfile, replayDir, speed, seek);
+            return;
+        }
+        if (propfile == null) {
+            System.err.println("A properties file is needed unless replaying");
+            System.exit(1);
+        }
+
+        SimulationEngine engine = null;
+        MassiveMotion mm = null;
+        try {
+            if (headless) {
+                engine = new SimulationEngine(propfile);
             } else {
-                // from right: move left (negative vx)
-                vx = - (1 + (int) (Math.random() * bv));
+                System.out.println("Massive Motion starting...");
+                mm = new MassiveMotion(propfile);
+                engine = mm.engine;
+            }
+        } catch (IOException e) {
+            System.err.println("Cannot read " + propfile + ": " + e.getMessage());
+            System.exit(1);
+        } catch (IllegalArgumentException e) {
+            System.err.print(e.getMessage());
+            System.exit(1);
+        }
+        if (!prepare(engine, restore, checkpointEvery, checkpointFile)) {
+            System.exit(1);
+        }
+        TrajectoryRecorder recorder = null;
+        if (record != null) {
+            try {
+                recorder = new TrajectoryRecorder(record, engine.getMaxX(), engine.getMaxY());
+            } catch (IOException e) {
+                System.err.println("Cannot record to " + record + ": " + e.getMessage());
+                System.exit(1);
+            }
+            engine.setRecorder(recorder);
+        }
+        MassiveMotionMetrics metrics = engine.getMetrics();
+        metrics.register();
+        if (metricsCsv != null) {
+            try {
+                metrics.startCsv(metricsCsv, metricsInterval);
+            } catch (IOException e) {
+                System.err.println("Cannot write metrics to " + metricsCsv + ": " + e.getMessage());
             }
-            bodies.add(new Body(x, y, vx, vy, bodySize, false));
         }
 
-        try {
-            // Reuse the survivors list to avoid allocation each tick
-            survivors.clear();
-
-            Iterator<Body> iterator = bodies.iterator();
-            if (iterator.hasNext()) {
-                Body star = iterator.next();
-                star.move();
-                survivors.add(star);
+        if (headless) {
+            runHeadless(engine, ticks);
+            if (recorder != null) {
+                closeRecorder(recorder);
             }
+            metrics.stopCsv();
+            return;
+        }
 
-            // Update remaining bodies using iterator traversal
-            while (iterator.hasNext()) {
-                Body b = iterator.next();
-                b.move();
-                int bx = b.getX();
-                int by = b.getY();
-                // If the body is outside the view, drop it
-                if (!(bx < -bodySize || bx > maxX + bodySize || by < -bodySize || by > maxY + bodySize)) {
-                    survivors.add(b);
-                }
+        // Flush the log and the CSV file when the window is closed
+        TrajectoryRecorder r = recorder;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (r != null) {
+                closeRecorder(r);
             }
+            metrics.stopCsv();
+        }));
+        show(mm, engine.getMaxX(), engine.getMaxY());
+    }
 
-            List<Body> tmp = bodies;
-            bodies = survivors;
-            survivors = tmp;
-        } catch (Exception e) {
-            e.printStackTrace();
+    private static void closeRecorder(TrajectoryRecorder recorder) {
+        try {
+            recorder.close();
+        } catch (IOException e) {
+            System.err.println("Recording incomplete: " + e.getMessage());
         }
-
-        repaint();
     }
 
     /**
-     * Takes the properties filename as the first
-     * command-line argument. Creates the JFrame and adds the MassiveMotion panel.
+     * Open a recorded run and play it in a window.
      */
-    public static void main(String[] args) {
-        System.out.println("Massive Motion starting...");
-        MassiveMotion mm = new MassiveMotion(args[0]);
+    private static void replay(String propfile, String dir, double speed, long seek) {
+        TrajectoryLog log = null;
+        try {
+            log = new TrajectoryLog(dir);
+        } catch (IOException e) {
+            System.err.println("Cannot replay " + dir + ": " + e.getMessage());
+            System.exit(1);
+        }
+        if (seek >= 0 && !log.seek(seek)) {
+            System.err.println("The recording ends before tick " + seek);
+            System.exit(1);
+        }
+        Properties prop = new Properties();
+        if (propfile != null) {
+            try {
+                prop = SimulationEngine.loadProperties(propfile);
+            } catch (IOException e) {
+                System.err.println("Cannot read " + propfile + ": " + e.getMessage());
+                System.exit(1);
+            }
+        }
+        StringBuilder errors = new StringBuilder();
+        ConfigUpdate rates = ConfigUpdate.parse(prop, errors);
+        if (rates == null) {
+            System.err.print("Invalid settings:\n" + errors);
+            System.exit(1);
+        }
+        int delay = repaintDelay(rates.renderHz);
+        System.out.println("Replaying " + dir + " from tick " + log.peekTick());
+        show(new MassiveMotion(log, delay, speed), log.getWidth(), log.getHeight());
+    }
 
+    private static void show(MassiveMotion mm, int width, int height) {
         JFrame jf = new JFrame();
         jf.setTitle("Massive Motion");
-        jf.setSize(mm.maxX, mm.maxY);
+        jf.setSize(width, height);
         jf.add(mm);
         jf.setVisible(true);
         jf.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -0,0 +1,222 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Per-tick instrumentation of a SimulationEngine: a LatencyHistogram for
+ * each phase of the tick, spawn and cull counts, and the bytes allocated
+ * by the simulation thread per tick (from the HotSpot ThreadMXBean, when
+ * the JVM provides it). The engine records the tick phases; the runner
+ * and the panel record the snapshot swap and the paint.
+ *
+ * register() publishes everything over JMX for JConsole, and
+ * startCsv() appends a summary row to a CSV file at a fixed interval.
+ */
+public class MassiveMotionMetrics implements MassiveMotionMetricsMBean {
+
+    public final LatencyHistogram tickTime = new LatencyHistogram("tick");
+    public final LatencyHistogram spawnTime = new LatencyHistogram("spawn");
+    public final LatencyHistogram gravityTime = new LatencyHistogram("gravity");
+    public final LatencyHistogram moveTime = new LatencyHistogram("move");
+    public final LatencyHistogram collideTime = new LatencyHistogram("collide");
+    public final LatencyHistogram swapTime = new LatencyHistogram("swap");
+    public final LatencyHistogram paintTime = new LatencyHistogram("paint");
+
+    private final LatencyHistogram[] phases =
+            { tickTime, spawnTime, gravityTime, moveTime, collideTime, swapTime, paintTime };
+
+    private final SimulationEngine engine;
+    private final com.sun.management.ThreadMXBean threads;
+
+    // Written by the simulation thread, read by JMX and the CSV dump
+    private volatile int lastSpawns, lastCulls;
+    private volatile long totalSpawns, totalCulls;
+    private volatile long lastAllocated, totalAllocated, allocatedTicks;
+    private volatile long stepErrors;
+    private volatile long droppedSteps;
+    private volatile String lastError = "";
+
+    private long allocStart;
+
+    private ScheduledExecutorService csv;
+    private PrintWriter csvOut;
+
+    /**
+     * @param engine simulation whose tick and body count are reported
+     */
+    public MassiveMotionMetrics(SimulationEngine engine) {
+        this.engine = engine;
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean hotspot = null;
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            hotspot = (com.sun.management.ThreadMXBean) bean;
+            if (!hotspot.isThreadAllocatedMemorySupported()) {
+                hotspot = null;
+            } else if (!hotspot.isThreadAllocatedMemoryEnabled()) {
+                hotspot.setThreadAllocatedMemoryEnabled(true);
+            }
+        }
+        threads = hotspot;
+    }
+
+    /**
+     * Called by the engine at the start of a tick.
+     */
+    void beginTick() {
+        if (threads != null) {
+            allocStart = threads.getCurrentThreadAllocatedBytes();
+        }
+    }
+
+    /**
+     * Called by the engine at the end of a tick.
+     * @param spawns bodies added this tick
+     * @param culls bodies removed off screen this tick
+     */
+    void endTick(int spawns, int culls) {
+        lastSpawns = spawns;
+        lastCulls = culls;
+        totalSpawns += spawns;
+        totalCulls += culls;
+        if (threads != null) {
+            long bytes = threads.getCurrentThreadAllocatedBytes() - allocStart;
+            lastAllocated = bytes;
+            totalAllocated += bytes;
+            allocatedTicks++;
+        }
+    }
+
+    /**
+     * Count a step that threw. Called by whoever runs the engine.
+     */
+    public void stepFailed(Throwable t) {
+        stepErrors++;
+        lastError = String.valueOf(t);
+    }
+
+    /**
+     * Count steps skipped because the runner fell too far behind.
+     */
+    public void stepsDropped(long n) {
+        droppedSteps += n;
+    }
+
+    /**
+     * Register this bean and one bean per phase with the platform MBean
+     * server, as MassiveMotion:type=Metrics and
+     * MassiveMotion:type=Phase,name=(phase).
+     */
+    public void register() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.registerMBean(this, new ObjectName("MassiveMotion:type=Metrics"));
+            for (LatencyHistogram h : phases) {
+                server.registerMBean(h, new ObjectName("MassiveMotion:type=Phase,name=" + h.getName()));
+            }
+        } catch (JMException e) {
+            System.err.println("Metrics not registered: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Append a row of metrics to a CSV file every interval, starting with
+     * a header row. The file is replaced if it exists.
+     * @param path CSV file
+     * @param intervalMillis time between rows
+     * @throws IOException if the file cannot be created
+     */
+    public synchronized void startCsv(String path, long intervalMillis) throws IOException {
+        csvOut = new PrintWriter(Files.newBufferedWriter(Paths.get(path)));
+        StringBuilder header = new StringBuilder(
+                "time_ms,tick,bodies,spawns,culls,alloc_bytes_per_tick,step_errors,dropped_steps");
+        for (LatencyHistogram h : phases) {
+            String n = h.getName();
+            header.append(',').append(n).append("_p50_ns,").append(n).append("_p99_ns,")
+                    .append(n).append("_max_ns");
+        }
+        csvOut.println(header);
+        csvOut.flush();
+        csv = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metrics-csv");
+            t.setDaemon(true);
+            return t;
+        });
+        csv.scheduleAtFixedRate(this::writeCsvRow, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Write a final row and close the CSV file, if one is open.
+     */
+    public synchronized void stopCsv() {
+        if (csv == null) return;
+        csv.shutdownNow();
+        writeCsvRow();
+        csvOut.close();
+        csv = null;
+    }
+
+    private synchronized void writeCsvRow() {
+        if (csvOut == null) return;
+        StringBuilder row = new StringBuilder();
+        row.append(System.currentTimeMillis()).append(',').append(getTick())
+                .append(',').append(getBodyCount()).append(',').append(totalSpawns)
+                .append(',').append(totalCulls).append(',').append((long) getMeanAllocatedBytes())
+                .append(',').append(stepErrors).append(',').append(droppedSteps);
+        for (LatencyHistogram h : phases) {
+            row.append(',').append(h.getP50Nanos()).append(',').append(h.getP99Nanos())
+                    .append(',').append(h.getMaxNanos());
+        }
+        csvOut.println(row);
+        csvOut.flush();
+    }
+
+    /**
+     * One line per phase with its count, p50, p99 and max, for printing
+     * at the end of a headless run.
+     */
+    public String summary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-8s %10s %10s %10s %10s%n", "phase", "count", "p50 us", "p99 us", "max us"));
+        for (LatencyHistogram h : phases) {
+            if (h.getCount() == 0) continue;
+            sb.append(String.format("%-8s %10d %10.1f %10.1f %10.1f%n", h.getName(), h.getCount(),
+                    h.getP50Nanos() / 1e3, h.getP99Nanos() / 1e3, h.getMaxNanos() / 1e3));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Getters.
+     */
+    public long getTick() { return engine.getTick(); }
+    public int getBodyCount() { return engine.size(); }
+    public int getLastSpawns() { return lastSpawns; }
+    public int getLastCulls() { return lastCulls; }
+    public long getTotalSpawns() { return totalSpawns; }
+    public long getTotalCulls() { return totalCulls; }
+    public long getLastAllocatedBytes() { return lastAllocated; }
+    public double getMeanAllocatedBytes() {
+        long ticks = allocatedTicks;
+        return ticks == 0 ? 0 : (double) totalAllocated / ticks;
+    }
+    public long getStepErrors() { return stepErrors; }
+    public long getDroppedSteps() { return droppedSteps; }
+    public String getLastError() { return lastError; }
+    public long getTickP50Nanos() { return tickTime.getP50Nanos(); }
+    public long getTickP99Nanos() { return tickTime.getP99Nanos(); }
+    public long getTickMaxNanos() { return tickTime.getMaxNanos(); }
+
+    public void resetHistograms() {
+        for (LatencyHistogram h : phases) {
+            h.reset();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+/**
+ * JMX view of a running simulation, shown in JConsole as
+ * MassiveMotion:type=Metrics. Per-phase timings are separate
+ * LatencyHistogram beans.
+ */
+public interface MassiveMotionMetricsMBean {
+    long getTick();
+    int getBodyCount();
+    int getLastSpawns();
+    int getLastCulls();
+    long getTotalSpawns();
+    long getTotalCulls();
+    long getLastAllocatedBytes();
+    double getMeanAllocatedBytes();
+    long getStepErrors();
+    long getDroppedSteps();
+    String getLastError();
+    long getTickP50Nanos();
+    long getTickP99Nanos();
+    long getTickMaxNanos();
+    void resetHistograms();
+}
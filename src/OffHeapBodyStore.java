@@ -0,0 +1,423 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * ColumnStore whose columns live outside the Java heap (list = offheap). All the bodies are
+ * kept in one direct ByteBuffer, laid out as a structure of arrays: five
+ * double columns (x, y, vx, vy, mass), then the int sizes, then one byte
+ * per body for the star flag. The heap holds only the buffer objects and
+ * this store, so its size does not grow with the population, and the
+ * garbage collector never scans or copies the bodies.
+ *
+ * The block is replaced by one half again as large when it fills, up to
+ * MAX_CAPACITY bodies, the most one ByteBuffer can index. The old block
+ * is released when its buffer is collected, not explicitly: JDK 17 has no
+ * public way to free a direct buffer (MemorySegment and Arena are still
+ * incubating there). Direct memory is capped by -XX:MaxDirectMemorySize,
+ * which defaults to the maximum heap size.
+ *
+ * The behaviour matches BodyStore: step() moves and culls in one
+ * compacting pass, and removeMarked() and the parallel step move each run
+ * of survivors with one bulk copy per column. Body views and the iterator
+ * read and write the block directly. The step kernels work on heap
+ * arrays, so step() always runs its own scalar loop.
+ */
+public class OffHeapBodyStore implements ColumnStore {
+
+    // Bytes per body across all columns
+    static final int BODY_BYTES = 5 * Double.BYTES + Integer.BYTES + 1;
+
+    // Most bodies a block can hold
+    static final int MAX_CAPACITY = Integer.MAX_VALUE / BODY_BYTES;
+
+    private ByteBuffer block;
+    private DoubleBuffer x, y;
+    private DoubleBuffer vx, vy;
+    private IntBuffer size;
+    private DoubleBuffer mass;
+    private ByteBuffer star;
+    private int capacity;
+    private int count;
+
+    // Parallel step: the runner, survivors per chunk and this tick's
+    // bounds, kept between ticks
+    private ParallelChunks.Runner stepRunner;
+    private int[] kept;
+    private int stepMinX, stepMinY, stepMaxX, stepMaxY;
+
+    /**
+     * Constructor
+     */
+    public OffHeapBodyStore() {
+        this(1024);
+    }
+
+    /**
+     * Create a store with room for the given number of bodies.
+     * @param capacity initial capacity
+     */
+    public OffHeapBodyStore(int capacity) {
+        allocate(Math.min(MAX_CAPACITY, Math.max(1, capacity)));
+        count = 0;
+    }
+
+    /**
+     * Point the columns at a new block with room for capacity bodies, at
+     * most MAX_CAPACITY. The old contents are not copied.
+     */
+    private void allocate(int capacity) {
+        long bytes = (long) capacity * BODY_BYTES;
+        if (bytes > Integer.MAX_VALUE) {
+            throw new RuntimeException("Off-heap store cannot hold " + capacity + " bodies");
+        }
+        this.capacity = capacity;
+        block = ByteBuffer.allocateDirect((int) bytes);
+        // Doubles first, so every column is aligned to its element size
+        int doubles = capacity * Double.BYTES;
+        x = column(0, doubles).asDoubleBuffer();
+        y = column(doubles, doubles).asDoubleBuffer();
+        vx = column(2 * doubles, doubles).asDoubleBuffer();
+        vy = column(3 * doubles, doubles).asDoubleBuffer();
+        mass = column(4 * doubles, doubles).asDoubleBuffer();
+        size = column(5 * doubles, capacity * Integer.BYTES).asIntBuffer();
+        star = column(5 * doubles + capacity * Integer.BYTES, capacity);
+    }
+
+    private ByteBuffer column(int offset, int length) {
+        return block.slice(offset, length).order(ByteOrder.nativeOrder());
+    }
+
+    private void grow_block() {
+        if (capacity == MAX_CAPACITY) {
+            throw new RuntimeException("Off-heap store is full at " + MAX_CAPACITY + " bodies");
+        }
+        DoubleBuffer ox = x, oy = y, ovx = vx, ovy = vy, omass = mass;
+        IntBuffer osize = size;
+        ByteBuffer ostar = star;
+        allocate((int) Math.min(MAX_CAPACITY, capacity * 3L / 2 + 1));
+        x.put(0, ox, 0, count);
+        y.put(0, oy, 0, count);
+        vx.put(0, ovx, 0, count);
+        vy.put(0, ovy, 0, count);
+        mass.put(0, omass, 0, count);
+        size.put(0, osize, 0, count);
+        star.put(0, ostar, 0, count);
+    }
+
+    /**
+     * Move the bodies in [from, from + n) to [to, to + n), one bulk copy
+     * per column. The ranges may overlap.
+     */
+    private void moveRange(int from, int to, int n) {
+        if (n <= 0 || from == to) return;
+        x.put(to, x, from, n);
+        y.put(to, y, from, n);
+        vx.put(to, vx, from, n);
+        vy.put(to, vy, from, n);
+        mass.put(to, mass, from, n);
+        size.put(to, size, from, n);
+        star.put(to, star, from, n);
+    }
+
+    /**
+     * Bytes of direct memory held by the current block.
+     * @return block size in bytes
+     */
+    public long getOffHeapBytes() {
+        return (long) capacity * BODY_BYTES;
+    }
+
+    /**
+     * Current number of bodies in the store.
+     * @return size
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Add a body with the given mass to the end of the store.
+     * @return index of the new body
+     */
+    public int add(double x, double y, double vx, double vy, int size, double mass, boolean isStar) {
+        if (count == capacity) {
+            grow_block();
+        }
+        this.x.put(count, x);
+        this.y.put(count, y);
+        this.vx.put(count, vx);
+        this.vy.put(count, vy);
+        this.size.put(count, size);
+        this.mass.put(count, mass);
+        this.star.put(count, (byte) (isStar ? 1 : 0));
+        return count++;
+    }
+
+    /**
+     * Remove the body at index by moving the last body into its slot.
+     * @param index index to remove
+     * @throws Exception on invalid index
+     */
+    public void remove(int index) throws Exception {
+        if (index < 0 || index >= count) {
+            throw new Exception("Invalid position");
+        }
+        swapRemove(index);
+    }
+
+    private void swapRemove(int index) {
+        int last = --count;
+        moveRange(last, index, 1);
+    }
+
+    /**
+     * Remove all bodies from the store. The block is kept for reuse.
+     */
+    public void clear() {
+        count = 0;
+    }
+
+    /**
+     * Getters and setters by index. These do not check bounds against the
+     * number of bodies.
+     */
+    public int getX(int i) { return (int) x.get(i); }
+    public int getY(int i) { return (int) y.get(i); }
+    public int getVx(int i) { return (int) vx.get(i); }
+    public int getVy(int i) { return (int) vy.get(i); }
+    public double getPreciseX(int i) { return x.get(i); }
+    public double getPreciseY(int i) { return y.get(i); }
+    public double getPreciseVx(int i) { return vx.get(i); }
+    public double getPreciseVy(int i) { return vy.get(i); }
+    public int getSize(int i) { return size.get(i); }
+    public double getMass(int i) { return mass.get(i); }
+    public boolean isStar(int i) { return star.get(i) != 0; }
+
+    public void setVx(int i, int v) { vx.put(i, v); }
+    public void setVy(int i, int v) { vy.put(i, v); }
+
+    /**
+     * Add an acceleration to the velocity of the body at index.
+     */
+    public void accelerate(int i, double ax, double ay) {
+        vx.put(i, vx.get(i) + ax);
+        vy.put(i, vy.get(i) + ay);
+    }
+
+    /**
+     * Advance every body by its velocity and remove non-star bodies that
+     * end up outside [minX, maxX] x [minY, maxY]. Survivors are compacted
+     * in order. The step kernel is not used; the loop is the scalar one,
+     * run over the block.
+     * @return number of bodies removed
+     */
+    public int step(int minX, int minY, int maxX, int maxY) {
+        int kept = stepRange(0, count, minX, minY, maxX, maxY);
+        int removed = count - kept;
+        count = kept;
+        return removed;
+    }
+
+    /**
+     * Same as step(), but the bodies are split into chunks that are moved
+     * and culled on the pool, then packed together in order.
+     * @return number of bodies removed
+     */
+    public int step(int minX, int minY, int maxX, int maxY, ForkJoinPool pool, int threads) {
+        int n = count;
+        int chunks = ParallelChunks.chunksFor(n, threads);
+        if (chunks <= 1) {
+            return step(minX, minY, maxX, maxY);
+        }
+        setUpParallel(pool, threads);
+        stepMinX = minX;
+        stepMinY = minY;
+        stepMaxX = maxX;
+        stepMaxY = maxY;
+        stepRunner.run(n, chunks);
+
+        int dst = kept[0];
+        for (int c = 1; c < chunks; c++) {
+            moveRange(ParallelChunks.chunkStart(c, n, chunks), dst, kept[c]);
+            dst += kept[c];
+        }
+        count = dst;
+        return n - dst;
+    }
+
+    /**
+     * Create the chunk runner and the per-chunk survivor counts for the
+     * pool, once, so the parallel step does not allocate per tick.
+     */
+    private void setUpParallel(ForkJoinPool pool, int threads) {
+        int chunks = ParallelChunks.maxChunks(threads);
+        if (stepRunner == null || stepRunner.getPool() != pool || kept.length < chunks) {
+            kept = new int[chunks];
+            stepRunner = new ParallelChunks.Runner(pool, chunks, this::stepChunk);
+        }
+    }
+
+    private void stepChunk(int c, int lo, int hi) {
+        kept[c] = stepRange(lo, hi, stepMinX, stepMinY, stepMaxX, stepMaxY) - lo;
+    }
+
+    /**
+     * Move and cull the bodies in [lo, hi), packing survivors from lo.
+     * Absolute gets and puts never touch the buffers' positions, so
+     * chunks can run on several threads at once.
+     * @return index one past the last survivor
+     */
+    private int stepRange(int lo, int hi, int minX, int minY, int maxX, int maxY) {
+        int w = lo;
+        for (int i = lo; i < hi; i++) {
+            double bx = x.get(i) + vx.get(i);
+            double by = y.get(i) + vy.get(i);
+            if (star.get(i) == 0 && (bx < minX || bx > maxX || by < minY || by > maxY)) {
+                continue;
+            }
+            x.put(w, bx);
+            y.put(w, by);
+            if (w != i) {
+                vx.put(w, vx.get(i));
+                vy.put(w, vy.get(i));
+                size.put(w, size.get(i));
+                mass.put(w, mass.get(i));
+                star.put(w, star.get(i));
+            }
+            w++;
+        }
+        return w;
+    }
+
+    /**
+     * Add the bodies in [lo, hi) to stats.
+     * @param stats accumulator
+     * @param lo first index, inclusive
+     * @param hi last index, exclusive
+     */
+    public void addStats(BodyStats stats, int lo, int hi) {
+        for (int i = lo; i < hi; i++) {
+            stats.add(x.get(i), y.get(i), vx.get(i), vy.get(i), size.get(i), mass.get(i));
+        }
+    }
+
+    /**
+     * Remove every body whose flag is set, keeping the others in order.
+     * Each run of survivors is moved down with one bulk copy per column.
+     * @param dead one flag per body, by index
+     * @return number of bodies removed
+     */
+    public int removeMarked(boolean[] dead) {
+        int w = 0;
+        int i = 0;
+        while (i < count) {
+            if (dead[i]) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < count && !dead[i]) {
+                i++;
+            }
+            moveRange(start, w, i - start);
+            w += i - start;
+        }
+        int removed = count - w;
+        count = w;
+        return removed;
+    }
+
+    /**
+     * Return a Body view of the body at index. The view reads and writes
+     * the block directly and is only valid until the store is next modified.
+     * @param index body index
+     * @return view of the body
+     * @throws Exception on invalid index
+     */
+    public Body view(int index) throws Exception {
+        if (index < 0 || index >= count) {
+            throw new Exception("Invalid position");
+        }
+        View v = new View();
+        v.index = index;
+        return v;
+    }
+
+    /**
+     * Return an iterator over the bodies. The same Body view is reused for
+     * every call to next(), so callers must not hold on to it.
+     * @return iterator
+     */
+    public Iterator<Body> iterator() {
+        return new StoreIterator();
+    }
+
+    private class View extends Body {
+        int index;
+
+        View() {
+            super(0, 0, 0, 0, 0, false);
+        }
+
+        public int getX() { return (int) x.get(index); }
+        public int getY() { return (int) y.get(index); }
+        public int getVx() { return (int) vx.get(index); }
+        public int getVy() { return (int) vy.get(index); }
+        public double getPreciseX() { return x.get(index); }
+        public double getPreciseY() { return y.get(index); }
+        public double getPreciseVx() { return vx.get(index); }
+        public double getPreciseVy() { return vy.get(index); }
+        public int getSize() { return size.get(index); }
+        public double getMass() { return mass.get(index); }
+        public boolean isStar() { return star.get(index) != 0; }
+
+        public void setState(double x, double y, double vx, double vy, int size, double mass) {
+            OffHeapBodyStore.this.x.put(index, x);
+            OffHeapBodyStore.this.y.put(index, y);
+            OffHeapBodyStore.this.vx.put(index, vx);
+            OffHeapBodyStore.this.vy.put(index, vy);
+            OffHeapBodyStore.this.size.put(index, size);
+            OffHeapBodyStore.this.mass.put(index, mass);
+        }
+
+        public void setVx(int v) { vx.put(index, v); }
+        public void setVy(int v) { vy.put(index, v); }
+
+        public void accelerate(double ax, double ay) {
+            vx.put(index, vx.get(index) + ax);
+            vy.put(index, vy.get(index) + ay);
+        }
+
+        public void move() {
+            x.put(index, x.get(index) + vx.get(index));
+            y.put(index, y.get(index) + vy.get(index));
+        }
+    }
+
+    private class StoreIterator implements Iterator<Body> {
+        private final View view = new View();
+        private int nextIndex = 0;
+        private boolean canRemove = false;
+
+        public boolean hasNext() {
+            return nextIndex < count;
+        }
+
+        public Body next() {
+            if (nextIndex >= count) throw new RuntimeException("No more elements");
+            canRemove = true;
+            view.index = nextIndex++;
+            return view;
+        }
+
+        public void remove() {
+            if (!canRemove) throw new RuntimeException("No element to remove");
+            canRemove = false;
+            // The last body moves into the removed slot; visit it next
+            swapRemove(--nextIndex);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Splits an index range [0, n) into contiguous chunks and runs them on a
+ * ForkJoinPool. Chunk c always covers the same range for a given n and
+ * chunk count, so callers can keep per-chunk results in arrays indexed by
+ * chunk and combine them afterwards without locking.
+ */
+public class ParallelChunks {
+
+    // Below this many elements per chunk the fork/join overhead dominates
+    static final int MIN_CHUNK = 4096;
+
+    /**
+     * Work done on one chunk.
+     */
+    public interface Chunk {
+        /**
+         * @param chunk chunk number
+         * @param lo first index, inclusive
+         * @param hi last index, exclusive
+         */
+        void run(int chunk, int lo, int hi);
+    }
+
+    /**
+     * Number of chunks to use for n elements on the given number of threads.
+     * @param n number of elements
+     * @param threads worker threads
+     * @return chunk count, at least 1
+     */
+    public static int chunksFor(int n, int threads) {
+        return Math.max(1, Math.min(maxChunks(threads), n / MIN_CHUNK));
+    }
+
+    /**
+     * Most chunks chunksFor() returns for the given number of threads, for
+     * sizing per-chunk state once.
+     * @param threads worker threads
+     * @return largest chunk count
+     */
+    public static int maxChunks(int threads) {
+        return Math.max(1, threads * 4);
+    }
+
+    /**
+     * Start index of the given chunk.
+     */
+    public static int chunkStart(int chunk, int n, int chunks) {
+        return (int) ((long) n * chunk / chunks);
+    }
+
+    /**
+     * Run work over [0, n) in the given number of chunks and wait for all
+     * of them. With one chunk or no pool the work runs on the caller.
+     * Allocates its tasks on every call; per-tick callers use a Runner.
+     */
+    public static void run(ForkJoinPool pool, int n, int chunks, Chunk work) {
+        new Runner(pool, chunks, work).run(n, chunks);
+    }
+
+    /**
+     * Runs one piece of work over an index range again and again without
+     * allocating. The fork/join task tree for each chunk count is built
+     * the first time that count is used, and reinitialized for every later
+     * run. Not for concurrent use.
+     */
+    public static class Runner {
+        private final ForkJoinPool pool;
+        private final Chunk work;
+        // Root task by chunk count
+        private final Task[] trees;
+        private int n;
+
+        /**
+         * @param pool pool to run on, or null to run on the caller
+         * @param maxChunks largest chunk count run() will be given
+         * @param work work done on each chunk
+         */
+        public Runner(ForkJoinPool pool, int maxChunks, Chunk work) {
+            this.pool = pool;
+            this.work = work;
+            trees = new Task[Math.max(1, maxChunks) + 1];
+        }
+
+        /**
+         * @return pool the chunks run on
+         */
+        public ForkJoinPool getPool() {
+            return pool;
+        }
+
+        /**
+         * Run the work over [0, n) in the given number of chunks, at most
+         * maxChunks, and wait for all of them.
+         */
+        public void run(int n, int chunks) {
+            if (pool == null || chunks <= 1) {
+                for (int c = 0; c < chunks; c++) {
+                    work.run(c, chunkStart(c, n, chunks), chunkStart(c + 1, n, chunks));
+                }
+                return;
+            }
+            this.n = n;
+            Task root = trees[chunks];
+            if (root == null) {
+                root = trees[chunks] = new Task(this, chunks, 0, chunks);
+            } else {
+                root.reset();
+            }
+            pool.invoke(root);
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static class Task extends RecursiveAction {
+        private final Runner runner;
+        private final int chunks;
+        private final int from, to;
+        private final Task left, right;
+
+        Task(Runner runner, int chunks, int from, int to) {
+            this.runner = runner;
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+            if (to - from == 1) {
+                left = null;
+                right = null;
+            } else {
+                int mid = (from + to) >>> 1;
+                left = new Task(runner, chunks, from, mid);
+                right = new Task(runner, chunks, mid, to);
+            }
+        }
+
+        /**
+         * Make this task and its subtasks runnable again.
+         */
+        void reset() {
+            reinitialize();
+            if (left != null) {
+                left.reset();
+                right.reset();
+            }
+        }
+
+        protected void compute() {
+            if (left == null) {
+                int n = runner.n;
+                runner.work.run(from, chunkStart(from, n, chunks), chunkStart(from + 1, n, chunks));
+                return;
+            }
+            invokeAll(left, right);
+        }
+    }
+}
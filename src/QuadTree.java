@@ -0,0 +1,217 @@
+/**
+ * Barnes-Hut quadtree over a set of point masses. The tree is stored in
+ * parallel arrays that are reused between builds, so rebuilding it every
+ * tick does not allocate once the arrays have grown to fit.
+ *
+ * Each node covers a square. Internal nodes have four consecutive children
+ * starting at firstChild; leaves hold a chain of body indices (more than
+ * one only when bodies coincide below MIN_HALF).
+ */
+public class QuadTree {
+    // Leaves smaller than this are not split further
+    private static final double MIN_HALF = 1e-3;
+
+    private double[] cx, cy, half;
+    private double[] mass, comX, comY;
+    private int[] firstChild;
+    private int[] body;
+    private int nodeCount;
+
+    // Body chain links for leaves, indexed by body
+    private int[] next;
+
+    private double[] px, py, pm;
+
+    /**
+     * Constructor
+     */
+    public QuadTree() {
+        allocateNodes(64);
+        next = new int[16];
+    }
+
+    private void allocateNodes(int capacity) {
+        cx = new double[capacity];
+        cy = new double[capacity];
+        half = new double[capacity];
+        mass = new double[capacity];
+        comX = new double[capacity];
+        comY = new double[capacity];
+        firstChild = new int[capacity];
+        body = new int[capacity];
+    }
+
+    private void grow_nodes() {
+        int capacity = cx.length * 2;
+        cx = java.util.Arrays.copyOf(cx, capacity);
+        cy = java.util.Arrays.copyOf(cy, capacity);
+        half = java.util.Arrays.copyOf(half, capacity);
+        mass = java.util.Arrays.copyOf(mass, capacity);
+        comX = java.util.Arrays.copyOf(comX, capacity);
+        comY = java.util.Arrays.copyOf(comY, capacity);
+        firstChild = java.util.Arrays.copyOf(firstChild, capacity);
+        body = java.util.Arrays.copyOf(body, capacity);
+    }
+
+    private int newNode(double x, double y, double h) {
+        if (nodeCount == cx.length) {
+            grow_nodes();
+        }
+        int node = nodeCount++;
+        cx[node] = x;
+        cy[node] = y;
+        half[node] = h;
+        firstChild[node] = -1;
+        body[node] = -1;
+        return node;
+    }
+
+    /**
+     * Build the tree over the first n points. The arrays are referenced,
+     * not copied, and must not change until the tree is rebuilt.
+     * @param x x positions
+     * @param y y positions
+     * @param m masses
+     * @param n number of points
+     */
+    public void build(double[] x, double[] y, double[] m, int n) {
+        px = x;
+        py = y;
+        pm = m;
+        nodeCount = 0;
+        if (next.length < n) {
+            next = new int[Math.max(n, next.length * 2)];
+        }
+
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            minX = Math.min(minX, x[i]);
+            minY = Math.min(minY, y[i]);
+            maxX = Math.max(maxX, x[i]);
+            maxY = Math.max(maxY, y[i]);
+        }
+        if (n == 0) {
+            newNode(0, 0, 1);
+            return;
+        }
+        double h = Math.max(Math.max(maxX - minX, maxY - minY) / 2, 1) * 1.0001;
+        newNode((minX + maxX) / 2, (minY + maxY) / 2, h);
+
+        for (int i = 0; i < n; i++) {
+            insert(i);
+        }
+        summarize();
+    }
+
+    private int quadrant(int node, int i) {
+        return (px[i] >= cx[node] ? 1 : 0) + (py[i] >= cy[node] ? 2 : 0);
+    }
+
+    private void insert(int i) {
+        int node = 0;
+        while (true) {
+            if (firstChild[node] >= 0) {
+                node = firstChild[node] + quadrant(node, i);
+                continue;
+            }
+            if (body[node] < 0) {
+                body[node] = i;
+                next[i] = -1;
+                return;
+            }
+            if (half[node] < MIN_HALF) {
+                next[i] = body[node];
+                body[node] = i;
+                return;
+            }
+            // Split the leaf and push its body down one level
+            double h = half[node] / 2;
+            int fc = newNode(cx[node] - h, cy[node] - h, h);
+            newNode(cx[node] + h, cy[node] - h, h);
+            newNode(cx[node] - h, cy[node] + h, h);
+            newNode(cx[node] + h, cy[node] + h, h);
+            int b = body[node];
+            body[node] = -1;
+            firstChild[node] = fc;
+            body[fc + quadrant(node, b)] = b;
+        }
+    }
+
+    private void summarize() {
+        // Children always come after their parent, so a reverse sweep
+        // visits every child before its parent
+        for (int node = nodeCount - 1; node >= 0; node--) {
+            double m = 0, mx = 0, my = 0;
+            if (firstChild[node] >= 0) {
+                for (int c = firstChild[node]; c < firstChild[node] + 4; c++) {
+                    m += mass[c];
+                    mx += mass[c] * comX[c];
+                    my += mass[c] * comY[c];
+                }
+            } else {
+                for (int b = body[node]; b >= 0; b = next[b]) {
+                    m += pm[b];
+                    mx += pm[b] * px[b];
+                    my += pm[b] * py[b];
+                }
+            }
+            mass[node] = m;
+            comX[node] = m > 0 ? mx / m : cx[node];
+            comY[node] = m > 0 ? my / m : cy[node];
+        }
+    }
+
+    /**
+     * Compute the acceleration on point i from every other point.
+     * @param i point index
+     * @param k gravity constant in the caller's units
+     * @param theta opening angle; nodes with size / distance below it are
+     *              treated as a single mass
+     * @param soft2 squared softening length
+     * @param stack scratch stack, grown if needed; returned for reuse
+     * @param out receives ax in out[0] and ay in out[1]
+     * @return the (possibly grown) scratch stack
+     */
+    public int[] accel(int i, double k, double theta, double soft2, int[] stack, double[] out) {
+        double xi = px[i], yi = py[i];
+        double ax = 0, ay = 0;
+        double theta2 = theta * theta;
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (mass[node] == 0) continue;
+            if (firstChild[node] < 0) {
+                for (int b = body[node]; b >= 0; b = next[b]) {
+                    if (b == i) continue;
+                    double dx = px[b] - xi, dy = py[b] - yi;
+                    double d2 = dx * dx + dy * dy + soft2;
+                    double f = k * pm[b] / (d2 * Math.sqrt(d2));
+                    ax += f * dx;
+                    ay += f * dy;
+                }
+                continue;
+            }
+            double dx = comX[node] - xi, dy = comY[node] - yi;
+            double d2 = dx * dx + dy * dy;
+            double s = 2 * half[node];
+            if (s * s < theta2 * d2) {
+                d2 += soft2;
+                double f = k * mass[node] / (d2 * Math.sqrt(d2));
+                ax += f * dx;
+                ay += f * dy;
+            } else {
+                if (top + 4 > stack.length) {
+                    stack = java.util.Arrays.copyOf(stack, stack.length * 2);
+                }
+                for (int c = firstChild[node]; c < firstChild[node] + 4; c++) {
+                    stack[top++] = c;
+                }
+            }
+        }
+        out[0] = ax;
+        out[1] = ay;
+        return stack;
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * Plays a recorded TrajectoryLog into a SnapshotBuffer on its own thread,
+ * in place of a SimulationRunner. Each period advances the log by speed
+ * frames: 1 plays at the recorded rate, 4 plays four ticks per frame and
+ * 0.25 shows each tick for four frames. Skipped frames are stepped over
+ * without being decoded. Playback stops on the last frame.
+ */
+public class ReplayRunner implements Runnable {
+
+    private final TrajectoryLog log;
+    private final SnapshotBuffer snapshots;
+    private final long periodNanos;
+    private final double speed;
+    private volatile boolean running;
+    private Thread thread;
+
+    /**
+     * @param log log positioned at the first frame to show
+     * @param snapshots buffer to publish into
+     * @param periodMillis time between published frames
+     * @param speed recorded ticks per published frame
+     */
+    public ReplayRunner(TrajectoryLog log, SnapshotBuffer snapshots, int periodMillis, double speed) {
+        this.log = log;
+        this.snapshots = snapshots;
+        this.periodNanos = periodMillis * 1000000L;
+        this.speed = speed;
+        if (log.next(snapshots.writeBuffer())) {
+            snapshots.publish();
+        }
+    }
+
+    /**
+     * Start the replay thread if it is not already running.
+     */
+    public synchronized void start() {
+        if (thread != null) return;
+        running = true;
+        thread = new Thread(this, "replay");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stop the replay thread and wait for it.
+     */
+    public synchronized void stop() throws InterruptedException {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            thread.join();
+            thread = null;
+        }
+    }
+
+    /**
+     * Replay loop, scheduled against a fixed deadline like the simulation.
+     */
+    public void run() {
+        long next = System.nanoTime();
+        double pending = 0;
+        while (running) {
+            pending += speed;
+            int frames = (int) pending;
+            pending -= frames;
+            if (frames > 0) {
+                for (int i = 1; i < frames; i++) {
+                    if (!log.skip()) break;
+                }
+                if (!log.next(snapshots.writeBuffer())) {
+                    return;
+                }
+                snapshots.publish();
+            }
+
+            next += periodNanos;
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                try {
+                    Thread.sleep(wait / 1000000, (int) (wait % 1000000));
+                } catch (InterruptedException e) {
+                    return;
+                }
+            } else {
+                next = System.nanoTime();
+            }
+        }
+    }
+}
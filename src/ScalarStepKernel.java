@@ -0,0 +1,33 @@
+/**
+ * Move-and-cull loop one body at a time. Each body is moved, tested and,
+ * if it survives, copied down to the next free slot in a single pass.
+ */
+public class ScalarStepKernel implements StepKernel {
+
+    public int step(double[] x, double[] y, double[] vx, double[] vy, int[] size, double[] mass,
+                    boolean[] star, int lo, int hi, int minX, int minY, int maxX, int maxY) {
+        int w = lo;
+        for (int i = lo; i < hi; i++) {
+            double bx = x[i] + vx[i];
+            double by = y[i] + vy[i];
+            if (!star[i] && (bx < minX || bx > maxX || by < minY || by > maxY)) {
+                continue;
+            }
+            x[w] = bx;
+            y[w] = by;
+            if (w != i) {
+                vx[w] = vx[i];
+                vy[w] = vy[i];
+                size[w] = size[i];
+                mass[w] = mass[i];
+                star[w] = star[i];
+            }
+            w++;
+        }
+        return w;
+    }
+
+    public String getName() {
+        return "scalar";
+    }
+}
@@ -0,0 +1,737 @@
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+/**
+ * SimulationEngine holds the simulation state and the per-tick step logic
+ * (spawn, gravity, move, cull, collide) independently of any Swing component, so it can be
+ * driven by the panel's Timer or run headless as fast as possible.
+ */
+public class SimulationEngine {
+
+    protected int maxX, maxY;
+
+    protected int starX, starY;
+
+    protected int starSize;
+
+    protected int starVx, starVy;
+
+    protected double genX, genY;
+
+    protected int bodySize;
+    protected int bodyVelocity;
+
+    protected double bodyMass, starMass;
+
+    protected List<Body> bodies;
+
+    // Structure-of-arrays storage used instead of bodies when list = store,
+    // or off the heap when list = offheap
+    protected ColumnStore store;
+
+    protected String listImpl;
+
+    // step_kernel: scalar, vector or auto, for the store's move-and-cull loop
+    protected String stepKernel;
+
+    // cull: scan, wheel or auto. wheel tests only the bodies due to leave,
+    // but every velocity change reschedules a body, so auto picks it only
+    // when gravity is off. The stores always scan.
+    protected String cull;
+
+    protected Gravity gravity;
+
+    // Null when collisions are off
+    protected Collisions collisions;
+
+    // Collision counts for the last tick and since the start
+    protected int lastMerges, lastAbsorbed;
+    protected long totalMerges, totalAbsorbed;
+
+    // Parallel step, used when threads > 1
+    protected int threads;
+    protected ForkJoinPool pool;
+
+    // Recycles culled and merged bodies for new spawns in the List modes
+    protected BodyPool bodyPool = new BodyPool();
+
+    // Culls by predicted exit tick instead of testing every body; null
+    // when culling scans (property cull)
+    protected ExpiryScheduler expiry;
+
+    // bodies, when it can remove a body through a handle; expired bodies
+    // are then unlinked directly instead of with a removeIf pass
+    protected HandleList<Body> handles;
+
+    // removeIf filters, created once so a tick does not allocate them
+    private final Predicate<Body> moveAndCull = this::moveAndCull;
+    private final Predicate<Body> takeMarked = this::takeMarked;
+    private final Predicate<Body> takeExpired = this::takeExpired;
+    private final Predicate<Body> moveOnly = this::moveOnly;
+    private final Predicate<Body> moveAndTakeExpired = this::moveAndTakeExpired;
+    private boolean[] marks;
+    private int markIndex;
+
+    // Scratch arrays and chunk runner for the parallel list step, reused
+    // between ticks
+    private Body[] scratch = new Body[16];
+    private boolean[] culled = new boolean[16];
+    private int scratchCount;
+    private boolean parallelCull;
+    private ParallelChunks.Runner listRunner;
+    private final Predicate<Body> collectScratch = this::collectScratch;
+
+    protected long tick;
+
+    // Spawn randomness. The same seed reproduces the same run. The
+    // stream's state is saved in checkpoints; draws are counted for
+    // reporting.
+    protected long seed;
+    protected SplitMix64 random;
+    protected long randomDraws;
+
+    // Write a checkpoint to checkpointPath every checkpointEvery ticks (0 = never)
+    protected String checkpointPath;
+    protected long checkpointEvery;
+
+    // Receives every tick's bodies when a run is being recorded
+    protected TrajectoryRecorder recorder;
+
+    // Phase timings and per-tick counts
+    protected final MassiveMotionMetrics metrics = new MassiveMotionMetrics(this);
+
+    // Settings from a config reload, applied at the start of the next tick
+    protected final AtomicReference<ConfigUpdate> pendingConfig = new AtomicReference<>();
+
+    /**
+     * Load a Java properties file.
+     * @param propfile path to the properties file
+     * @return loaded properties
+     * @throws IOException if the file is missing or cannot be read
+     */
+    public static Properties loadProperties(String propfile) throws IOException {
+        Properties prop = new Properties();
+        try (InputStream is = new FileInputStream(propfile)) {
+            prop.load(is);
+        }
+        return prop;
+    }
+
+    /**
+     * Create the simulation state from a properties file.
+     * @param propfile path to a Java properties file
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if a setting is invalid
+     */
+    public SimulationEngine(String propfile) throws IOException {
+        this(loadProperties(propfile));
+    }
+
+    /**
+     * Create the simulation state from already loaded properties. Every
+     * setting is checked first, as ConfigUpdate.parseStartup() does.
+     * @param prop properties containing keys such as window_size_x, gen_x,
+     *             body_size, list, etc.
+     * @throws IllegalArgumentException naming each invalid key and value
+     */
+    public SimulationEngine(Properties prop) {
+        ConfigUpdate settings = ConfigUpdate.parseStartup(prop);
+        genX = settings.genX;
+        genY = settings.genY;
+        bodySize = settings.bodySize;
+        bodyVelocity = settings.bodyVelocity;
+        bodyMass = settings.bodyMass;
+        starVx = settings.starVx;
+        starVy = settings.starVy;
+
+        maxX = Integer.parseInt(prop.getProperty("window_size_x", "1024").trim());
+        maxY = Integer.parseInt(prop.getProperty("window_size_y", "768").trim());
+
+        starX = Integer.parseInt(prop.getProperty("star_position_x", "512").trim());
+        starY = Integer.parseInt(prop.getProperty("star_position_y", "384").trim());
+
+        starSize = Integer.parseInt(prop.getProperty("star_size", "30").trim());
+        starMass = Double.parseDouble(prop.getProperty("star_mass", "2E29").trim());
+
+        listImpl = prop.getProperty("list", "arraylist").trim();
+        stepKernel = prop.getProperty("step_kernel", "auto").trim();
+        cull = prop.getProperty("cull", "scan").trim();
+        threads = Integer.parseInt(prop.getProperty("threads", "1").trim());
+
+        String seedProp = prop.getProperty("seed");
+        seed = seedProp != null ? Long.parseLong(seedProp.trim()) : new SplittableRandom().nextLong();
+
+        gravity = new Gravity(prop, bodySize);
+        if ("on".equals(prop.getProperty("collisions", "off").trim())) {
+            collisions = new Collisions(bodySize);
+        }
+        if (threads > 1) {
+            pool = new ForkJoinPool(threads);
+            gravity.setParallelism(pool, threads);
+            listRunner = new ParallelChunks.Runner(pool, ParallelChunks.maxChunks(threads), this::moveChunk);
+        }
+        if ("arraylist".equals(listImpl)) {
+            bodies = new ArrayList<>();
+        } else if ("single".equals(listImpl)) {
+            bodies = new LinkedList<>();
+        } else if ("double".equals(listImpl)) {
+            bodies = new DoublyLinkedList<>();
+        } else if ("dummyhead".equals(listImpl)) {
+            bodies = new DummyHeadLinkedList<>();
+        } else if ("unrolled".equals(listImpl)) {
+            bodies = new UnrolledLinkedList<>();
+        } else if ("ring".equals(listImpl)) {
+            bodies = new ArrayDequeList<>();
+        } else if ("store".equals(listImpl)) {
+            BodyStore heap = new BodyStore();
+            heap.setKernel(StepKernel.create(stepKernel));
+            store = heap;
+        } else if ("offheap".equals(listImpl)) {
+            // The kernels run over heap arrays; the off-heap store has its
+            // own scalar loop
+            if (!"auto".equals(stepKernel) && !"scalar".equals(stepKernel)) {
+                System.err.println("step_kernel = " + stepKernel
+                        + " is not supported with list = offheap; using scalar");
+            }
+            store = new OffHeapBodyStore();
+        }
+
+        if (store != null) {
+            store.add(starX, starY, starVx, starVy, starSize, starMass, true);
+            // The stores cull in their compacting pass
+            if ("wheel".equals(cull)) {
+                System.err.println("cull = wheel is not supported with list = " + listImpl + "; using scan");
+            }
+        } else {
+            Body star = new Body(starX, starY, starVx, starVy, starSize, starMass, true);
+            bodies.add(star);
+            // The wheel pays off when bodies fly straight; gravity changes
+            // every velocity every tick, and each change reschedules
+            if ("wheel".equals(cull) || "auto".equals(cull) && !gravity.isEnabled()) {
+                expiry = new ExpiryScheduler(0, -bodySize, -bodySize, maxX + bodySize, maxY + bodySize);
+                if (bodies instanceof HandleList) {
+                    handles = (HandleList<Body>) bodies;
+                }
+            }
+        }
+        random = new SplitMix64(seed);
+        randomDraws = 0;
+        tick = 0;
+    }
+
+    /**
+     * Getters.
+     */
+    public int getMaxX() { return maxX; }
+    public int getMaxY() { return maxY; }
+    public long getTick() { return tick; }
+    public long getSeed() { return seed; }
+    public long getRandomDraws() { return randomDraws; }
+    public long getRandomState() { return random.getState(); }
+    public int getLastMerges() { return lastMerges; }
+    public int getLastAbsorbed() { return lastAbsorbed; }
+    public long getTotalMerges() { return totalMerges; }
+    public long getTotalAbsorbed() { return totalAbsorbed; }
+    public MassiveMotionMetrics getMetrics() { return metrics; }
+
+    /**
+     * Current number of bodies, including the star.
+     * @return body count
+     */
+    public int size() {
+        return store != null ? store.size() : bodies.size();
+    }
+
+    /**
+     * Return an iterator over the bodies. The star is returned first.
+     * @return iterator
+     */
+    public Iterator<Body> iterator() {
+        return store != null ? store.iterator() : bodies.iterator();
+    }
+
+    /**
+     * Kinetic energy, mass and bounding box of all bodies, including the
+     * star. With threads > 1 the bodies are split across the engine's
+     * pool: a List through its parallelStream(), the store by index
+     * chunks. Must not run concurrently with step().
+     * @return statistics for the current tick
+     */
+    public BodyStats stats() {
+        if (store != null) {
+            int n = store.size();
+            int chunks = pool != null ? ParallelChunks.chunksFor(n, threads) : 1;
+            BodyStats[] parts = new BodyStats[chunks];
+            ParallelChunks.run(pool, n, chunks, (c, lo, hi) -> {
+                parts[c] = new BodyStats();
+                store.addStats(parts[c], lo, hi);
+            });
+            for (int c = 1; c < chunks; c++) {
+                parts[0].combine(parts[c]);
+            }
+            return parts[0];
+        }
+        if (pool != null) {
+            // A parallel stream started from a pool task runs on that pool
+            return pool.submit(() -> bodies.parallelStream()
+                    .collect(BodyStats::new, BodyStats::add, BodyStats::combine)).join();
+        }
+        return bodies.stream().collect(BodyStats::new, BodyStats::add, BodyStats::combine);
+    }
+
+    /**
+     * Record every tick from now on, or stop recording.
+     * @param recorder log to append to, or null
+     */
+    public void setRecorder(TrajectoryRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Write a checkpoint after every n-th tick.
+     * @param path checkpoint file, overwritten each time
+     * @param every interval in ticks, or 0 to stop checkpointing
+     */
+    public void setCheckpoint(String path, long every) {
+        checkpointPath = path;
+        checkpointEvery = every;
+    }
+
+    /**
+     * Remove every body, including the star. Used before restoring a
+     * checkpoint.
+     */
+    public void clearBodies() {
+        if (store != null) {
+            store.clear();
+            return;
+        }
+        Iterator<Body> iterator = bodies.iterator();
+        while (iterator.hasNext()) {
+            releaseBody(iterator.next());
+        }
+        bodies.clear();
+    }
+
+    /**
+     * Append a body with exact state, e.g. one read from a checkpoint.
+     */
+    public void restoreBody(double x, double y, double vx, double vy, int size, double mass, boolean isStar) {
+        if (store != null) {
+            store.add(x, y, vx, vy, size, mass, isStar);
+        } else {
+            Body b = bodyPool.acquire(0, 0, 0, 0, size, mass, isStar);
+            b.setState(x, y, vx, vy, size, mass);
+            addToList(b);
+        }
+    }
+
+    /**
+     * Restore the tick counter, collision totals and random stream saved
+     * in a checkpoint. The stream is set to the saved state, so this does
+     * not depend on how many draws were made.
+     */
+    public void restoreCounters(long tick, long seed, long draws, long state, long merges, long absorbed) {
+        this.tick = tick;
+        this.seed = seed;
+        random = new SplitMix64(seed);
+        random.setState(state);
+        randomDraws = draws;
+        totalMerges = merges;
+        totalAbsorbed = absorbed;
+        if (expiry != null) {
+            expiry = new ExpiryScheduler(tick, -bodySize, -bodySize, maxX + bodySize, maxY + bodySize);
+            scheduleAll();
+        }
+    }
+
+    /**
+     * Compute the exit tick of every body again, e.g. after a restore or
+     * a change of the cull bounds.
+     */
+    private void scheduleAll() {
+        Iterator<Body> iterator = bodies.iterator();
+        while (iterator.hasNext()) {
+            expiry.schedule(iterator.next());
+        }
+    }
+
+    /**
+     * Queue new settings to be applied at the start of the next tick. May
+     * be called from any thread; if several updates arrive before a tick,
+     * only the latest is applied.
+     * @param update validated settings
+     */
+    public void requestUpdate(ConfigUpdate update) {
+        pendingConfig.set(update);
+    }
+
+    private void applyPendingConfig() {
+        ConfigUpdate update = pendingConfig.getAndSet(null);
+        if (update == null) return;
+        genX = update.genX;
+        genY = update.genY;
+        if (expiry != null && update.bodySize != bodySize) {
+            // The cull margin is one body size
+            int size = update.bodySize;
+            expiry.setBounds(-size, -size, maxX + size, maxY + size);
+            scheduleAll();
+        }
+        bodySize = update.bodySize;
+        bodyVelocity = update.bodyVelocity;
+        bodyMass = update.bodyMass;
+        starVx = update.starVx;
+        starVy = update.starVy;
+    }
+
+    /**
+     * Advance the simulation by n ticks.
+     * @param n number of ticks
+     */
+    public void step(int n) {
+        for (int i = 0; i < n; i++) {
+            step();
+        }
+    }
+
+    /**
+     * Advance the simulation by one tick: spawns new bodies based on genX
+     * and genY probabilities, applies gravity, advances all bodies,
+     * removes off-screen bodies and resolves collisions.
+     */
+    public void step() {
+        long start = System.nanoTime();
+        metrics.beginTick();
+        applyPendingConfig();
+        int before = size();
+
+        try {
+            if (store != null) {
+                if (store.size() > 0) {
+                    store.setVx(0, starVx);
+                    store.setVy(0, starVy);
+                }
+            } else if (bodies.size() > 0) {
+                Body s = bodies.get(0);
+                s.setVx(starVx);
+                s.setVy(starVy);
+            }
+        } catch (Exception e) {}
+
+        if (nextRandom() < genX) {
+            boolean top = nextRandom() < 0.5;
+            int x = (int) (nextRandom() * maxX);
+            int y;
+            if (top) y = 0; else y = maxY - bodySize;
+            int bv = Math.max(1, bodyVelocity);
+            int vx = (int) (nextRandom() * (2 * bv + 1)) - bv;
+            int vy;
+            if (top) {
+                // from top: move downward (positive vy)
+                vy = 1 + (int) (nextRandom() * bv); // 1..bv
+            } else {
+                // from bottom: move upward (negative vy)
+                vy = - (1 + (int) (nextRandom() * bv)); // -1..-bv
+            }
+            addBody(x, y, vx, vy);
+        }
+
+        if (nextRandom() < genY) {
+            boolean left = nextRandom() < 0.5;
+            int x;
+            if (left) x = 0; else x = maxX - bodySize;
+            int y = (int) (nextRandom() * maxY);
+            int bv = Math.max(1, bodyVelocity);
+            int vy = (int) (nextRandom() * (2 * bv + 1)) - bv;
+            int vx;
+            if (left) {
+                // from left: move right (positive vx)
+                vx = 1 + (int) (nextRandom() * bv);
+            } else {
+                // from right: move left (negative vx)
+                vx = - (1 + (int) (nextRandom() * bv));
+            }
+            addBody(x, y, vx, vy);
+        }
+
+        long spawned = System.nanoTime();
+        metrics.spawnTime.record(spawned - start);
+        int spawns = size() - before;
+
+        if (gravity.isEnabled()) {
+            gravity.apply(this);
+        }
+        long moving = System.nanoTime();
+        if (gravity.isEnabled()) {
+            metrics.gravityTime.record(moving - spawned);
+        }
+        before = size();
+
+        if (store != null) {
+            if (pool != null) {
+                store.step(-bodySize, -bodySize, maxX + bodySize, maxY + bodySize, pool, threads);
+            } else {
+                store.step(-bodySize, -bodySize, maxX + bodySize, maxY + bodySize);
+            }
+        } else if (expiry != null) {
+            // Drop the bodies due to leave with this move, then move the
+            // rest, which the wheel says stay inside
+            int expired = expiry.advance(tick + 1);
+            if (pool != null) {
+                dropExpired(expired);
+                parallelListStep(false);
+            } else if (handles != null || expired == 0) {
+                dropExpired(expired);
+                bodies.removeIf(moveOnly);
+            } else {
+                // Without handles, take the flagged bodies in the move pass
+                bodies.removeIf(moveAndTakeExpired);
+            }
+        } else if (pool != null) {
+            parallelListStep(true);
+        } else {
+            // Update all bodies and cull off-screen ones in the same pass
+            bodies.removeIf(moveAndCull);
+        }
+
+        long moved = System.nanoTime();
+        metrics.moveTime.record(moved - moving);
+        int culls = before - size();
+
+        if (collisions != null) {
+            if (collisions.resolve(this) > 0) {
+                removeMarked(collisions.getDead());
+            }
+            lastMerges = collisions.getMerges();
+            lastAbsorbed = collisions.getAbsorbed();
+            totalMerges += lastMerges;
+            totalAbsorbed += lastAbsorbed;
+            metrics.collideTime.record(System.nanoTime() - moved);
+        }
+        tick++;
+
+        if (recorder != null) {
+            recorder.record(this);
+        }
+        if (checkpointEvery > 0 && tick % checkpointEvery == 0) {
+            try {
+                Checkpoint.write(this, checkpointPath);
+            } catch (IOException e) {
+                System.err.println("Checkpoint failed: " + e.getMessage());
+            }
+        }
+        metrics.endTick(spawns, culls);
+        metrics.tickTime.record(System.nanoTime() - start);
+    }
+
+    /**
+     * Remove every body whose flag is set, by iteration index.
+     */
+    private void removeMarked(boolean[] dead) {
+        if (store != null) {
+            store.removeMarked(dead);
+            return;
+        }
+        removeMarkedBodies(dead);
+    }
+
+    /**
+     * Move one body and report whether it has left the view. Culled
+     * bodies go back to the pool. The star is never culled.
+     */
+    private boolean moveAndCull(Body b) {
+        b.move();
+        if (b.isStar()) return false;
+        // Same test as the store kernels: the exact position, not the
+        // truncated one, so every list mode culls on the same tick
+        double bx = b.getPreciseX();
+        double by = b.getPreciseY();
+        // If the body is outside the view, drop it
+        if (bx < -bodySize || bx > maxX + bodySize || by < -bodySize || by > maxY + bodySize) {
+            bodyPool.release(b);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Move one body without testing it, as a removeIf filter that keeps
+     * everything; the list's removeIf walks it without an iterator.
+     */
+    private boolean moveOnly(Body b) {
+        b.move();
+        return false;
+    }
+
+    /**
+     * Move one body and report whether the expiry scheduler flagged it to
+     * leave with this move.
+     */
+    private boolean moveAndTakeExpired(Body b) {
+        b.move();
+        return takeExpired(b);
+    }
+
+    /**
+     * Remove the bodies the expiry scheduler flagged in this tick's
+     * advance(). With a HandleList each one is unlinked in O(1);
+     * otherwise one removeIf pass takes the flagged bodies.
+     */
+    private void dropExpired(int expired) {
+        if (expired == 0) return;
+        if (handles == null) {
+            bodies.removeIf(takeExpired);
+            return;
+        }
+        for (int i = 0; i < expired; i++) {
+            Body b = expiry.getExpired(i);
+            handles.unlink(b.node);
+            releaseBody(b);
+        }
+    }
+
+    private boolean takeExpired(Body b) {
+        if (b.expired) {
+            releaseBody(b);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Stop tracking a body that leaves the simulation and return it to
+     * the pool.
+     */
+    private void releaseBody(Body b) {
+        if (expiry != null) {
+            expiry.cancel(b);
+        }
+        b.node = null;
+        bodyPool.release(b);
+    }
+
+    /**
+     * Remove the List bodies whose flag is set, by iteration index, with
+     * one removeIf pass.
+     */
+    private void removeMarkedBodies(boolean[] flags) {
+        marks = flags;
+        markIndex = 0;
+        bodies.removeIf(takeMarked);
+        marks = null;
+    }
+
+    private boolean takeMarked(Body b) {
+        if (marks[markIndex++]) {
+            releaseBody(b);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Move and cull the bodies of a List in parallel. The bodies are copied
+     * into a scratch array and moved in chunks on the pool; each chunk marks
+     * its own off-screen bodies, and a final removeIf pass removes them.
+     * @param cull false when the expiry scheduler has already culled, so
+     *             the chunks only move
+     */
+    private void parallelListStep(boolean cull) {
+        int n = bodies.size();
+        if (scratch.length < n) {
+            int capacity = Math.max(n, scratch.length * 3 / 2 + 1);
+            scratch = new Body[capacity];
+            culled = new boolean[capacity];
+        }
+        // A removeIf pass that keeps everything walks the list without
+        // allocating an iterator
+        scratchCount = 0;
+        bodies.removeIf(collectScratch);
+
+        parallelCull = cull;
+        listRunner.run(n, ParallelChunks.chunksFor(n, threads));
+
+        if (cull) {
+            removeMarkedBodies(culled);
+        }
+        for (int i = 0; i < n; i++) {
+            scratch[i] = null;
+        }
+    }
+
+    private boolean collectScratch(Body b) {
+        scratch[scratchCount++] = b;
+        return false;
+    }
+
+    /**
+     * Move the scratch bodies in [lo, hi) and, unless the expiry scheduler
+     * has already culled, mark the ones that left the view.
+     */
+    private void moveChunk(int c, int lo, int hi) {
+        for (int i = lo; i < hi; i++) {
+            Body b = scratch[i];
+            b.move();
+            if (!parallelCull) continue;
+            double bx = b.getPreciseX();
+            double by = b.getPreciseY();
+            // The first body is the star and is never culled
+            culled[i] = i > 0 && (bx < -bodySize || bx > maxX + bodySize
+                    || by < -bodySize || by > maxY + bodySize);
+        }
+    }
+
+    /**
+     * Next spawn random number in [0, 1) from this engine's stream.
+     */
+    private double nextRandom() {
+        randomDraws++;
+        return random.nextDouble();
+    }
+
+    /**
+     * Independent random stream split off this engine's stream, for a
+     * worker that needs its own randomness without contending on the
+     * engine's. Split every worker's stream in the same order, e.g. once
+     * per worker when the pool is set up, and seeded runs stay
+     * reproducible.
+     * @return new random stream
+     */
+    public SplitMix64 splitRandom() {
+        // split() advances the parent stream twice
+        randomDraws += 2;
+        return random.split();
+    }
+
+    /**
+     * Add a newly spawned body to whichever storage is in use.
+     */
+    private void addBody(int x, int y, int vx, int vy) {
+        if (store != null) {
+            store.add(x, y, vx, vy, bodySize, bodyMass, false);
+        } else {
+            Body b = bodyPool.acquire(x, y, vx, vy, bodySize, bodyMass, false);
+            addToList(b);
+            if (expiry != null) {
+                expiry.schedule(b);
+            }
+        }
+    }
+
+    /**
+     * Append a body to the List, keeping its handle when there is one.
+     */
+    private void addToList(Body b) {
+        if (handles != null) {
+            b.node = handles.addLinked(b);
+        } else {
+            bodies.add(b);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/**
+ * Runs a SimulationEngine on its own thread with a fixed timestep and
+ * publishes Snapshots for rendering. Simulation and rendering run at
+ * independent rates: real time is accumulated and the engine is stepped
+ * once per elapsed step period (sim_hz), while snapshots are published at
+ * most once per render period (render_hz). A slow frame therefore never
+ * slows simulated time, and the physics can run faster than the display.
+ *
+ * When stepping falls behind, at most maxCatchUp steps are run in one
+ * pass of the loop and the rest of the backlog is dropped, so an overloaded
+ * simulation slows down instead of spiralling further and further behind.
+ */
+public class SimulationRunner implements Runnable {
+
+    private final SimulationEngine engine;
+    private final SnapshotBuffer snapshots;
+    private final Runnable onPublish;
+    private volatile long stepNanos;
+    private volatile long renderNanos;
+    private volatile int maxCatchUp;
+    private volatile boolean running;
+    private Thread thread;
+
+    /**
+     * @param engine simulation to run
+     * @param snapshots buffer to publish into
+     * @param simHz steps per second
+     * @param renderHz most snapshots to publish per second
+     * @param maxCatchUp most steps to run in one pass of the loop
+     * @param onPublish called on the simulation thread after every publish,
+     *                  e.g. to request a repaint; may be null
+     */
+    public SimulationRunner(SimulationEngine engine, SnapshotBuffer snapshots,
+                            double simHz, double renderHz, int maxCatchUp, Runnable onPublish) {
+        this.engine = engine;
+        this.snapshots = snapshots;
+        this.onPublish = onPublish;
+        setRates(simHz, renderHz, maxCatchUp);
+        // Make the initial state visible before the first step
+        publish(System.nanoTime());
+    }
+
+    /**
+     * Change the step and publish rates. Takes effect on the next pass of
+     * the loop.
+     * @param simHz steps per second
+     * @param renderHz most snapshots to publish per second
+     * @param maxCatchUp most steps to run in one pass of the loop
+     */
+    public void setRates(double simHz, double renderHz, int maxCatchUp) {
+        stepNanos = Math.max(1, (long) (1e9 / simHz));
+        renderNanos = Math.max(1, (long) (1e9 / renderHz));
+        this.maxCatchUp = Math.max(1, maxCatchUp);
+    }
+
+    /**
+     * Start the simulation thread if it is not already running.
+     */
+    public synchronized void start() {
+        if (thread != null) return;
+        running = true;
+        thread = new Thread(this, "simulation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Ask the simulation thread to stop after its current step and wait
+     * for it.
+     */
+    public synchronized void stop() throws InterruptedException {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            thread.join();
+            thread = null;
+        }
+    }
+
+    /**
+     * Copy the engine into the write buffer and publish it.
+     * @param stepTime time the current state was due, for interpolation
+     */
+    private void publish(long stepTime) {
+        long start = System.nanoTime();
+        Snapshot snap = snapshots.writeBuffer();
+        snap.fill(engine);
+        snap.setTiming(stepTime, stepNanos);
+        snapshots.publish();
+        engine.getMetrics().swapTime.record(System.nanoTime() - start);
+    }
+
+    /**
+     * Simulation loop. Elapsed time goes into an accumulator, whole step
+     * periods are taken out of it one step at a time, and the remainder
+     * carries over, so the average step rate matches sim_hz however the
+     * sleeps fall.
+     */
+    public void run() {
+        long previous = System.nanoTime();
+        long lag = 0;
+        long nextPublish = previous;
+        while (running) {
+            long now = System.nanoTime();
+            lag += now - previous;
+            previous = now;
+
+            long period = stepNanos;
+            int steps = 0;
+            while (lag >= period && steps < maxCatchUp) {
+                try {
+                    engine.step();
+                } catch (RuntimeException e) {
+                    engine.getMetrics().stepFailed(e);
+                    e.printStackTrace();
+                }
+                lag -= period;
+                steps++;
+            }
+            if (lag >= period) {
+                // Too far behind: drop the backlog rather than spiral
+                engine.getMetrics().stepsDropped(lag / period);
+                lag %= period;
+            }
+
+            if (steps > 0 && now - nextPublish >= 0) {
+                // The state is the one due lag nanoseconds before now
+                publish(now - lag);
+                nextPublish += renderNanos;
+                if (now - nextPublish > 0) {
+                    nextPublish = now;
+                }
+                if (onPublish != null) {
+                    onPublish.run();
+                }
+            }
+
+            long wait = period - lag - (System.nanoTime() - now);
+            if (wait > 0) {
+                try {
+                    Thread.sleep(wait / 1000000, (int) (wait % 1000000));
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+}
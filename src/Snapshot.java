@@ -0,0 +1,119 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Immutable-once-published copy of the body positions for drawing. The
+ * arrays are reused: a Snapshot is refilled by the simulation thread only
+ * while it owns it, and read by the render thread only after it has been
+ * handed over through a SnapshotBuffer.
+ *
+ * Velocities and the time the state was due are kept too, so a frame
+ * painted between two steps can interpolate between the previous state and
+ * this one (see alpha()) instead of stuttering when painting outpaces
+ * stepping. The previous state needs no second copy: a step moves every
+ * body by its current velocity (gravity is applied first), so each body
+ * was at x - vx one step ago. A merged body's center and velocity are
+ * mass-weighted averages of the pair's, so x - vx is the pair's previous
+ * center of mass, drawn at the merged size. Drawing therefore runs one
+ * step behind the simulation and never passes a body's real position,
+ * even when it is culled, merged or accelerated.
+ */
+public class Snapshot {
+    private double[] x = new double[16], y = new double[16];
+    private double[] vx = new double[16], vy = new double[16];
+    private int[] size = new int[16];
+    private boolean[] star = new boolean[16];
+    private int count;
+    private long tick;
+    private long time;
+    private long stepNanos = 1;
+
+    /**
+     * Copy the current positions out of the engine.
+     * @param engine simulation to copy
+     */
+    public void fill(SimulationEngine engine) {
+        int n = engine.size();
+        grow_arrays(n);
+        Iterator<Body> it = engine.iterator();
+        int i = 0;
+        while (it.hasNext() && i < n) {
+            Body b = it.next();
+            x[i] = b.getPreciseX();
+            y[i] = b.getPreciseY();
+            vx[i] = b.getPreciseVx();
+            vy[i] = b.getPreciseVy();
+            size[i] = b.getSize();
+            star[i] = b.isStar();
+            i++;
+        }
+        count = i;
+        tick = engine.getTick();
+    }
+
+    /**
+     * Copy a recorded frame, as written by TrajectoryRecorder.
+     * @param buf buffer holding the frame
+     * @param pos offset of the first body record
+     * @param n number of bodies
+     * @param tick tick the frame was recorded at
+     */
+    public void load(ByteBuffer buf, int pos, int n, long tick) {
+        grow_arrays(n);
+        for (int i = 0; i < n; i++) {
+            x[i] = buf.getInt(pos);
+            y[i] = buf.getInt(pos + 4);
+            vx[i] = 0;
+            vy[i] = 0;
+            size[i] = buf.getInt(pos + 8);
+            star[i] = (buf.get(pos + 12) & TrajectoryRecorder.STAR) != 0;
+            pos += TrajectoryRecorder.BODY_BYTES;
+        }
+        count = n;
+        this.tick = tick;
+    }
+
+    private void grow_arrays(int n) {
+        if (x.length < n) {
+            int capacity = Math.max(n, x.length * 3 / 2 + 1);
+            x = new double[capacity];
+            y = new double[capacity];
+            vx = new double[capacity];
+            vy = new double[capacity];
+            size = new int[capacity];
+            star = new boolean[capacity];
+        }
+    }
+
+    /**
+     * Record when this state was due and how long a step lasts.
+     * @param time System.nanoTime() the state belongs to
+     * @param stepNanos length of one step
+     */
+    public void setTiming(long time, long stepNanos) {
+        this.time = time;
+        this.stepNanos = Math.max(1, stepNanos);
+    }
+
+    /**
+     * Fraction of a step that has passed since this state was due,
+     * between 0 and 1; pass it to getX(i, alpha) and getY(i, alpha).
+     * @param now current System.nanoTime()
+     */
+    public double alpha(long now) {
+        double a = (double) (now - time) / stepNanos;
+        return a < 0 ? 0 : (a > 1 ? 1 : a);
+    }
+
+    /**
+     * Getters. The two-argument position getters interpolate from the
+     * previous state (alpha 0) to this one (alpha 1).
+     */
+    public int size() { return count; }
+    public long getTick() { return tick; }
+    public int getX(int i) { return (int) x[i]; }
+    public int getY(int i) { return (int) y[i]; }
+    public int getX(int i, double alpha) { return (int) (x[i] - vx[i] * (1 - alpha)); }
+    public int getY(int i, double alpha) { return (int) (y[i] - vy[i] * (1 - alpha)); }
+    public int getSize(int i) { return size[i]; }
+    public boolean isStar(int i) { return star[i]; }
+}
@@ -0,0 +1,49 @@
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free triple buffer for handing snapshots from the simulation thread
+ * to the render thread. The writer always owns one buffer and the reader
+ * another; the third sits in the middle and is swapped atomically, so
+ * neither side ever waits for the other and the reader never sees a buffer
+ * that is being written.
+ */
+public class SnapshotBuffer {
+    // Set in state when the middle buffer holds a frame the reader has not seen
+    private static final int FRESH = 4;
+
+    private final Snapshot[] buffers = { new Snapshot(), new Snapshot(), new Snapshot() };
+
+    // Index of the middle buffer, plus FRESH
+    private final AtomicInteger state = new AtomicInteger(1);
+    private int back = 0;
+    private int front = 2;
+
+    /**
+     * Buffer the writer may fill. Only call from the writer thread.
+     * @return the writer's buffer
+     */
+    public Snapshot writeBuffer() {
+        return buffers[back];
+    }
+
+    /**
+     * Publish the writer's buffer and take the middle one in exchange.
+     * Only call from the writer thread.
+     */
+    public void publish() {
+        back = state.getAndSet(back | FRESH) & 3;
+    }
+
+    /**
+     * Latest published snapshot. If nothing new was published since the
+     * last call, the same snapshot is returned again. Only call from the
+     * reader thread.
+     * @return snapshot to draw
+     */
+    public Snapshot read() {
+        if ((state.get() & FRESH) != 0) {
+            front = state.getAndSet(front) & 3;
+        }
+        return buffers[front];
+    }
+}
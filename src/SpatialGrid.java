@@ -0,0 +1,82 @@
+/**
+ * Uniform grid over a rectangle for broad-phase neighbor queries. Points
+ * are bucketed by cell with a counting sort, so a rebuild is O(n + cells)
+ * and the arrays are reused between rebuilds. Points outside the rectangle
+ * are clamped into the border cells.
+ */
+public class SpatialGrid {
+    private double minX, minY;
+    private double cellSize;
+    private int cols, rows;
+
+    // Items of cell c are items[cellStart[c] .. cellStart[c + 1])
+    private int[] cellStart = new int[1];
+    private int[] items = new int[16];
+    private int[] cellOf = new int[16];
+
+    /**
+     * Bucket the first n points into cells of the given size covering
+     * [minX, maxX] x [minY, maxY].
+     */
+    public void build(double[] x, double[] y, int n,
+                      double minX, double minY, double maxX, double maxY, double cellSize) {
+        this.minX = minX;
+        this.minY = minY;
+        this.cellSize = cellSize;
+        cols = Math.max(1, (int) Math.ceil((maxX - minX) / cellSize));
+        rows = Math.max(1, (int) Math.ceil((maxY - minY) / cellSize));
+        int cells = cols * rows;
+        if (cellStart.length < cells + 1) {
+            cellStart = new int[cells + 1];
+        } else {
+            java.util.Arrays.fill(cellStart, 0, cells + 1, 0);
+        }
+        if (items.length < n) {
+            int capacity = Math.max(n, items.length * 3 / 2 + 1);
+            items = new int[capacity];
+            cellOf = new int[capacity];
+        }
+
+        for (int i = 0; i < n; i++) {
+            int c = cellY(y[i]) * cols + cellX(x[i]);
+            cellOf[i] = c;
+            cellStart[c + 1]++;
+        }
+        for (int c = 0; c < cells; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        // Fill each cell from its end; afterwards cellStart[c + 1] holds
+        // the first slot of cell c, so shift the starts down one place
+        for (int i = n - 1; i >= 0; i--) {
+            items[--cellStart[cellOf[i] + 1]] = i;
+        }
+        for (int c = 0; c < cells; c++) {
+            cellStart[c] = cellStart[c + 1];
+        }
+        cellStart[cells] = n;
+    }
+
+    /**
+     * Column of an x coordinate, clamped to the grid.
+     */
+    public int cellX(double x) {
+        int c = (int) ((x - minX) / cellSize);
+        return c < 0 ? 0 : (c >= cols ? cols - 1 : c);
+    }
+
+    /**
+     * Row of a y coordinate, clamped to the grid.
+     */
+    public int cellY(double y) {
+        int c = (int) ((y - minY) / cellSize);
+        return c < 0 ? 0 : (c >= rows ? rows - 1 : c);
+    }
+
+    /**
+     * Getters for walking a cell: its items are item(k) for k in
+     * [start(col, row), end(col, row)).
+     */
+    public int start(int col, int row) { return cellStart[row * cols + col]; }
+    public int end(int col, int row) { return cellStart[row * cols + col + 1]; }
+    public int item(int k) { return items[k]; }
+}
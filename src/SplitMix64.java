@@ -0,0 +1,95 @@
+/**
+ * SplitMix64 random stream, the algorithm behind java.util.SplittableRandom.
+ * A stream seeded with s produces the same values as new SplittableRandom(s),
+ * but its whole state is one seed and one gamma, so it can be saved and
+ * restored directly, and advanced by any number of draws in O(1).
+ *
+ * split() returns an independent stream for a worker thread. Splitting is
+ * deterministic, so a seeded run stays reproducible as long as the streams
+ * are split in the same order.
+ */
+public class SplitMix64 {
+
+    // Increment of the default stream, as in SplittableRandom
+    static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private long state;
+    private final long gamma;
+
+    /**
+     * Create a stream with the default gamma.
+     * @param seed initial state
+     */
+    public SplitMix64(long seed) {
+        this(seed, GOLDEN_GAMMA);
+    }
+
+    private SplitMix64(long state, long gamma) {
+        this.state = state;
+        this.gamma = gamma;
+    }
+
+    /**
+     * Current state. A stream created with new SplitMix64(getState())
+     * continues this one, if both use the default gamma.
+     * @return state
+     */
+    public long getState() {
+        return state;
+    }
+
+    /**
+     * Move the stream to a saved state.
+     * @param state value returned by getState()
+     */
+    public void setState(long state) {
+        this.state = state;
+    }
+
+    /**
+     * Skip the next n draws without computing them.
+     * @param n number of draws to skip
+     */
+    public void advance(long n) {
+        state += n * gamma;
+    }
+
+    /**
+     * @return next value, uniform over all longs
+     */
+    public long nextLong() {
+        return mix64(state += gamma);
+    }
+
+    /**
+     * @return next value in [0, 1)
+     */
+    public double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * Return a new stream that shares no state with this one. Uses two
+     * draws of this stream.
+     * @return new stream
+     */
+    public SplitMix64 split() {
+        long seed = nextLong();
+        return new SplitMix64(seed, mixGamma(state += gamma));
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    // Odd gamma with enough bit transitions, as in SplittableRandom
+    private static long mixGamma(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        z = (z ^ (z >>> 33)) | 1L;
+        int n = Long.bitCount(z ^ (z >>> 1));
+        return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+    }
+}
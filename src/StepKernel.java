@@ -0,0 +1,43 @@
+/**
+ * The move-and-cull loop behind BodyStore.step(), run over the store's
+ * columns. ScalarStepKernel is always available. VectorStepKernel, in
+ * vector/, uses the incubating Vector API; it is only on the class path
+ * when compiled and run with --add-modules jdk.incubator.vector, and
+ * create() falls back to the scalar kernel when it is missing.
+ */
+public interface StepKernel {
+
+    /**
+     * Advance the bodies in [lo, hi) by their velocities and drop the
+     * non-star bodies that end up outside [minX, maxX] x [minY, maxY],
+     * packing the survivors in order from lo in every column.
+     * @return index one past the last survivor
+     */
+    int step(double[] x, double[] y, double[] vx, double[] vy, int[] size, double[] mass,
+             boolean[] star, int lo, int hi, int minX, int minY, int maxX, int maxY);
+
+    /**
+     * @return kernel name, as accepted by create()
+     */
+    String getName();
+
+    /**
+     * Create a kernel by name (property step_kernel): scalar, vector, or
+     * auto for vector when it is available and scalar otherwise.
+     * @param name kernel name
+     * @return kernel
+     */
+    static StepKernel create(String name) {
+        if (!"scalar".equals(name)) {
+            try {
+                return (StepKernel) Class.forName("VectorStepKernel").getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                if ("vector".equals(name)) {
+                    System.err.println("Vector step kernel unavailable (" + e
+                            + "); compile vector/ and run with --add-modules jdk.incubator.vector");
+                }
+            }
+        }
+        return new ScalarStepKernel();
+    }
+}
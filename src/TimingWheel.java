@@ -0,0 +1,186 @@
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel: entries are scheduled for a future tick and
+ * handed back when time is advanced past it. Scheduling and cancelling
+ * are O(1), and advancing costs O(1) per tick plus the entries that come
+ * due, however many entries are waiting.
+ *
+ * There are LEVELS wheels of SLOTS slots. Level 0 holds entries due in
+ * the current run of SLOTS ticks, level 1 those due in the current run of
+ * SLOTS^2 ticks, and so on; entries further out wait in an overflow list.
+ * Whenever the ticks of a lower level wrap around, the next slot of the
+ * level above is emptied and its entries are scheduled again, landing on
+ * a lower level.
+ *
+ * @param <T> value carried by the entries
+ */
+public class TimingWheel<T> {
+
+    static final int BITS = 6;
+    static final int SLOTS = 1 << BITS;
+    static final int LEVELS = 4;
+
+    /**
+     * A schedulable item. An entry is in at most one slot at a time and can
+     * be reused after it has come due or been cancelled.
+     *
+     * @param <T> value type
+     */
+    public static class Entry<T> {
+        private final T value;
+        private long tick;
+        private Entry<T> next, prev;
+        // -1 when not scheduled, LEVELS when in the overflow list
+        private int level = -1;
+        private int slot;
+
+        /**
+         * @param value value handed back with the entry
+         */
+        public Entry(T value) {
+            this.value = value;
+        }
+
+        public T getValue() { return value; }
+        public long getTick() { return tick; }
+        public boolean isScheduled() { return level >= 0; }
+    }
+
+    // slots[LEVELS][0] is the overflow list
+    private final Entry<T>[][] slots;
+    private long now;
+    private int size;
+
+    /**
+     * @param now current tick
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public TimingWheel(long now) {
+        this.now = now;
+        slots = (Entry<T>[][]) new Entry[LEVELS + 1][SLOTS];
+    }
+
+    /**
+     * @return current tick
+     */
+    public long getNow() {
+        return now;
+    }
+
+    /**
+     * @return number of scheduled entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Schedule an entry, moving it if it is already scheduled. A tick that
+     * is not in the future is treated as the next tick.
+     * @param e entry to schedule
+     * @param tick tick at which the entry comes due
+     */
+    public void schedule(Entry<T> e, long tick) {
+        cancel(e);
+        e.tick = Math.max(tick, now + 1);
+        insert(e);
+        size++;
+    }
+
+    /**
+     * Unschedule an entry. Does nothing if it is not scheduled.
+     * @param e entry to cancel
+     */
+    public void cancel(Entry<T> e) {
+        if (e.level < 0) return;
+        if (e.prev == null) {
+            slots[e.level][e.slot] = e.next;
+        } else {
+            e.prev.next = e.next;
+        }
+        if (e.next != null) {
+            e.next.prev = e.prev;
+        }
+        e.next = null;
+        e.prev = null;
+        e.level = -1;
+        size--;
+    }
+
+    /**
+     * Advance time one tick at a time up to the given tick, handing every
+     * entry that comes due to due. Entries are unscheduled before they are
+     * handed over, so due may schedule the entry it is given again, but it
+     * must not schedule or cancel other entries.
+     * @param to tick to advance to
+     * @param due receives the entries that come due
+     */
+    public void advance(long to, Consumer<Entry<T>> due) {
+        while (now < to) {
+            now++;
+            // Highest level first, so entries moved down land in slots
+            // that are cascaded after them
+            int top = 0;
+            while (top < LEVELS && (now & ((1L << ((top + 1) * BITS)) - 1)) == 0) {
+                top++;
+            }
+            for (int level = top; level >= 1; level--) {
+                cascade(level);
+            }
+            int s = (int) (now & (SLOTS - 1));
+            Entry<T> e = slots[0][s];
+            slots[0][s] = null;
+            for (Entry<T> c = e; c != null; c = c.next) {
+                c.level = -1;
+                size--;
+            }
+            while (e != null) {
+                Entry<T> next = e.next;
+                e.next = null;
+                e.prev = null;
+                due.accept(e);
+                e = next;
+            }
+        }
+    }
+
+    /**
+     * Reinsert the entries of the slot of the given level that the current
+     * tick has just reached.
+     */
+    private void cascade(int level) {
+        int s = level == LEVELS ? 0 : (int) ((now >>> (level * BITS)) & (SLOTS - 1));
+        Entry<T> e = slots[level][s];
+        slots[level][s] = null;
+        while (e != null) {
+            Entry<T> next = e.next;
+            insert(e);
+            e = next;
+        }
+    }
+
+    /**
+     * Put an entry in the slot for its tick, at the lowest level whose
+     * current run of ticks contains it.
+     */
+    private void insert(Entry<T> e) {
+        long delta = e.tick ^ now;
+        int level = delta == 0 ? 0 : (63 - Long.numberOfLeadingZeros(delta)) / BITS;
+        int s;
+        if (level >= LEVELS) {
+            level = LEVELS;
+            s = 0;
+        } else {
+            s = (int) ((e.tick >>> (level * BITS)) & (SLOTS - 1));
+        }
+        e.level = level;
+        e.slot = s;
+        e.prev = null;
+        e.next = slots[level][s];
+        if (e.next != null) {
+            e.next.prev = e;
+        }
+        slots[level][s] = e;
+    }
+}
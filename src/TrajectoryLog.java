@@ -0,0 +1,187 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read side of a TrajectoryRecorder log. Every segment is memory-mapped
+ * read-only, so stepping through frames is plain buffer reads with no
+ * copying through the heap, and seeking uses the keyframe index to jump
+ * close to the target before scanning forward.
+ *
+ * A log cut short by a crash is read up to its last complete frame.
+ */
+public class TrajectoryLog {
+
+    private final MappedByteBuffer[] segments;
+    private final int width, height;
+
+    // Keyframe index: frame at tick indexTick[k] starts at
+    // indexOffset[k] in segment indexSegment[k]
+    private final long[] indexTick;
+    private final int[] indexSegment;
+    private final long[] indexOffset;
+
+    // Position of the next frame
+    private int segment;
+    private int offset;
+
+    /**
+     * Open the log in dir.
+     * @param dir directory written by a TrajectoryRecorder
+     * @throws IOException if the log is missing or not a trajectory log
+     */
+    public TrajectoryLog(String dir) throws IOException {
+        Path base = Paths.get(dir);
+        int count = 0;
+        while (Files.exists(base.resolve(TrajectoryRecorder.segmentName(count)))) {
+            count++;
+        }
+        if (count == 0) {
+            throw new IOException(dir + ": no trajectory segments");
+        }
+        segments = new MappedByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            try (FileChannel ch = FileChannel.open(base.resolve(TrajectoryRecorder.segmentName(i)),
+                    StandardOpenOption.READ)) {
+                MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+                buf.order(ByteOrder.LITTLE_ENDIAN);
+                if (buf.limit() < TrajectoryRecorder.SEGMENT_HEADER_BYTES
+                        || buf.getInt(0) != TrajectoryRecorder.MAGIC) {
+                    throw new IOException(dir + ": segment " + i + " is not a trajectory segment");
+                }
+                if (buf.getInt(4) != TrajectoryRecorder.VERSION) {
+                    throw new IOException(dir + ": unsupported trajectory version " + buf.getInt(4));
+                }
+                segments[i] = buf;
+            }
+        }
+        width = segments[0].getInt(8);
+        height = segments[0].getInt(12);
+
+        int entries = 0;
+        MappedByteBuffer idx = null;
+        Path idxPath = base.resolve(TrajectoryRecorder.INDEX_FILE);
+        if (Files.exists(idxPath)) {
+            try (FileChannel ch = FileChannel.open(idxPath, StandardOpenOption.READ)) {
+                idx = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+                idx.order(ByteOrder.LITTLE_ENDIAN);
+                entries = (int) (ch.size() / TrajectoryRecorder.INDEX_ENTRY_BYTES);
+            }
+        }
+        indexTick = new long[entries];
+        indexSegment = new int[entries];
+        indexOffset = new long[entries];
+        for (int k = 0; k < entries; k++) {
+            indexTick[k] = idx.getLong();
+            indexSegment[k] = idx.getInt();
+            indexOffset[k] = idx.getLong();
+        }
+        rewind();
+    }
+
+    /**
+     * Getters for the recorded window size.
+     */
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+
+    /**
+     * Go back to the first frame.
+     */
+    public void rewind() {
+        segment = 0;
+        offset = TrajectoryRecorder.SEGMENT_HEADER_BYTES;
+    }
+
+    /**
+     * Move to the start of the next complete frame, crossing into the next
+     * segment if this one is used up.
+     * @return false at the end of the log
+     */
+    private boolean atFrame() {
+        while (segment < segments.length) {
+            MappedByteBuffer buf = segments[segment];
+            if (offset + TrajectoryRecorder.FRAME_HEADER_BYTES <= buf.limit()) {
+                int n = buf.getInt(offset + 8);
+                if (offset + frameBytes(n) <= buf.limit()) {
+                    return true;
+                }
+            }
+            segment++;
+            offset = TrajectoryRecorder.SEGMENT_HEADER_BYTES;
+        }
+        return false;
+    }
+
+    private static int frameBytes(int n) {
+        return TrajectoryRecorder.FRAME_HEADER_BYTES + n * TrajectoryRecorder.BODY_BYTES;
+    }
+
+    /**
+     * Tick of the next frame.
+     * @return the tick, or -1 at the end of the log
+     */
+    public long peekTick() {
+        return atFrame() ? segments[segment].getLong(offset) : -1;
+    }
+
+    /**
+     * Step over the next frame without decoding it.
+     * @return false at the end of the log
+     */
+    public boolean skip() {
+        if (!atFrame()) return false;
+        offset += frameBytes(segments[segment].getInt(offset + 8));
+        return true;
+    }
+
+    /**
+     * Decode the next frame into a snapshot.
+     * @param into snapshot to fill
+     * @return false at the end of the log
+     */
+    public boolean next(Snapshot into) {
+        if (!atFrame()) return false;
+        MappedByteBuffer buf = segments[segment];
+        long tick = buf.getLong(offset);
+        int n = buf.getInt(offset + 8);
+        into.load(buf, offset + TrajectoryRecorder.FRAME_HEADER_BYTES, n, tick);
+        offset += frameBytes(n);
+        return true;
+    }
+
+    /**
+     * Position the log so the next frame is the first one at or after the
+     * given tick: jump to the last keyframe at or before it, then skip.
+     * @param tick tick to seek to
+     * @return false if the log ends before that tick
+     */
+    public boolean seek(long tick) {
+        int lo = 0, hi = indexTick.length - 1, best = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (indexTick[mid] <= tick) {
+                best = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        if (best < 0 || indexSegment[best] >= segments.length) {
+            rewind();
+        } else {
+            segment = indexSegment[best];
+            offset = (int) indexOffset[best];
+        }
+        long t;
+        while ((t = peekTick()) >= 0 && t < tick) {
+            skip();
+        }
+        return t >= 0;
+    }
+}
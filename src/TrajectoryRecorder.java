@@ -0,0 +1,292 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Append-only log of every tick of a run, for replay and post-mortem
+ * analysis. The simulation thread copies each tick's bodies into a pooled
+ * buffer and queues it; a background writer thread drains the queue and
+ * appends the frames with gathering FileChannel writes, so recording costs
+ * the tick one copy and no I/O.
+ *
+ * The log is a directory of segment files (trajectory-00000.seg, ...),
+ * each starting with a small header and holding whole frames; a new
+ * segment is started once one passes SEGMENT_BYTES. Every KEYFRAME_EVERY
+ * frames an entry (tick, segment, offset) is appended to trajectory.idx
+ * so a replay can seek without scanning the whole log.
+ *
+ * Layout (little endian):
+ *   segment header: magic "MMTR", version, window width, window height
+ *   frame: tick (long), body count (int),
+ *          then per body x, y, size (int) and flags (byte)
+ *   index entry: tick (long), segment (int), offset (long)
+ */
+public class TrajectoryRecorder {
+
+    static final int MAGIC = 0x52544D4D; // "MMTR" read little endian
+    static final int VERSION = 1;
+    static final int SEGMENT_HEADER_BYTES = 4 * 4;
+    static final int FRAME_HEADER_BYTES = 8 + 4;
+    static final int BODY_BYTES = 4 * 3 + 1;
+    static final int INDEX_ENTRY_BYTES = 8 + 4 + 8;
+    static final byte STAR = 1;
+
+    static final long SEGMENT_BYTES = 256L << 20;
+    static final int KEYFRAME_EVERY = 64;
+
+    static final String INDEX_FILE = "trajectory.idx";
+
+    // Frames in flight between the simulation and the writer; when all
+    // are queued, record() waits for the writer to catch up
+    private static final int BUFFERS = 8;
+
+    // Queued after the last frame to stop the writer
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    private final Path dir;
+    private final int width, height;
+
+    private final ArrayBlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<>(BUFFERS);
+    private final ArrayBlockingQueue<ByteBuffer> full = new ArrayBlockingQueue<>(BUFFERS + 1);
+    private int allocated;
+
+    private final Thread writer;
+    // Guarded by this, so a frame is never queued behind END
+    private boolean closed;
+    // First write error; a RuntimeException from the writer is wrapped
+    private volatile IOException failure;
+
+    // Owned by the writer thread
+    private FileChannel segment;
+    private int segmentNumber;
+    private long segmentPos;
+    private FileChannel index;
+    private long frames;
+    private final ByteBuffer[] batch = new ByteBuffer[BUFFERS];
+    private final ByteBuffer indexBatch =
+            ByteBuffer.allocate(BUFFERS * INDEX_ENTRY_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * Start a new log in dir, replacing any log already there, and start
+     * the writer thread.
+     * @param dir directory for the segments and index, created if needed
+     * @param width window width, stored for replay
+     * @param height window height, stored for replay
+     * @throws IOException if the log cannot be created
+     */
+    public TrajectoryRecorder(String dir, int width, int height) throws IOException {
+        this.dir = Paths.get(dir);
+        this.width = width;
+        this.height = height;
+        Files.createDirectories(this.dir);
+        try (DirectoryStream<Path> old = Files.newDirectoryStream(this.dir, "trajectory*")) {
+            for (Path p : old) {
+                Files.delete(p);
+            }
+        }
+        index = FileChannel.open(this.dir.resolve(INDEX_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        openSegment(0);
+
+        writer = new Thread(this::writeLoop, "trajectory-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Name of segment number n inside a log directory.
+     */
+    static String segmentName(int n) {
+        return String.format("trajectory-%05d.seg", n);
+    }
+
+    /**
+     * Queue the engine's current bodies as one frame. Called on the
+     * simulation thread after each tick; only waits if the writer has
+     * fallen a full set of buffers behind. Does nothing once close() has
+     * started, which it excludes, or once a write has failed.
+     * @param engine simulation to record
+     */
+    public synchronized void record(SimulationEngine engine) {
+        if (closed || failure != null) return;
+        int n = engine.size();
+        ByteBuffer buf = takeBuffer(FRAME_HEADER_BYTES + n * BODY_BYTES);
+        if (buf == null) return;
+
+        buf.putLong(engine.getTick());
+        int countPos = buf.position();
+        buf.putInt(n);
+        Iterator<Body> it = engine.iterator();
+        int i = 0;
+        while (it.hasNext() && i < n) {
+            Body b = it.next();
+            buf.putInt(b.getX());
+            buf.putInt(b.getY());
+            buf.putInt(b.getSize());
+            buf.put(b.isStar() ? STAR : 0);
+            i++;
+        }
+        buf.putInt(countPos, i);
+        buf.flip();
+        full.add(buf);
+    }
+
+    private ByteBuffer takeBuffer(int bytes) {
+        ByteBuffer buf = free.poll();
+        if (buf == null) {
+            if (allocated < BUFFERS) {
+                allocated++;
+            } else {
+                try {
+                    buf = free.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+            }
+        }
+        if (buf == null || buf.capacity() < bytes) {
+            // Grow ahead of the population so a growing run reallocates rarely
+            int capacity = Math.max(bytes, buf == null ? 0 : buf.capacity() * 3 / 2 + 1);
+            buf = ByteBuffer.allocateDirect(capacity).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        buf.clear();
+        return buf;
+    }
+
+    /**
+     * Stop recording: wait for the queued frames to be written, then
+     * flush and close the log. May be called from any thread, e.g. a
+     * shutdown hook; a record() in progress finishes first.
+     * @throws IOException if any write failed
+     */
+    public synchronized void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        full.add(END);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            segment.force(false);
+            index.force(false);
+        } finally {
+            segment.close();
+            index.close();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void openSegment(int n) throws IOException {
+        if (segment != null) {
+            segment.close();
+        }
+        segmentNumber = n;
+        segment = FileChannel.open(dir.resolve(segmentName(n)), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(width).putInt(height).flip();
+        while (header.hasRemaining()) {
+            segment.write(header);
+        }
+        segmentPos = SEGMENT_HEADER_BYTES;
+    }
+
+    /**
+     * Writer thread: take whatever frames are queued and append them as
+     * one gathering write per segment.
+     */
+    private void writeLoop() {
+        boolean done = false;
+        while (!done) {
+            int count = 0;
+            try {
+                batch[count++] = full.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            while (count < BUFFERS) {
+                ByteBuffer next = full.poll();
+                if (next == null) break;
+                batch[count++] = next;
+            }
+            // Drop END wherever it is in the batch
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                if (batch[i] == END) {
+                    done = true;
+                } else {
+                    batch[kept++] = batch[i];
+                }
+            }
+            for (int i = kept; i < count; i++) {
+                batch[i] = null;
+            }
+            count = kept;
+            try {
+                if (failure == null) {
+                    append(count);
+                }
+            } catch (IOException e) {
+                fail(e);
+            } catch (RuntimeException e) {
+                fail(new IOException(e));
+            } finally {
+                // Always hand the buffers back, or record() would wait
+                // for them forever
+                for (int i = 0; i < count; i++) {
+                    free.add(batch[i]);
+                    batch[i] = null;
+                }
+            }
+        }
+    }
+
+    private void fail(IOException e) {
+        failure = e;
+        System.err.println("Trajectory recording failed: " + e.getMessage());
+    }
+
+    private void append(int count) throws IOException {
+        indexBatch.clear();
+        int first = 0;
+        for (int i = 0; i < count; i++) {
+            int bytes = batch[i].remaining();
+            if (segmentPos + bytes > SEGMENT_BYTES && segmentPos > SEGMENT_HEADER_BYTES) {
+                write(first, i);
+                first = i;
+                openSegment(segmentNumber + 1);
+            }
+            if (frames % KEYFRAME_EVERY == 0) {
+                indexBatch.putLong(batch[i].getLong(0)).putInt(segmentNumber).putLong(segmentPos);
+            }
+            segmentPos += bytes;
+            frames++;
+        }
+        write(first, count);
+        indexBatch.flip();
+        while (indexBatch.hasRemaining()) {
+            index.write(indexBatch);
+        }
+    }
+
+    private void write(int from, int to) throws IOException {
+        while (from < to) {
+            segment.write(batch, from, to - from);
+            while (from < to && !batch[from].hasRemaining()) {
+                from++;
+            }
+        }
+    }
+}
@@ -0,0 +1,483 @@
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Unrolled linked list implementation. Each node holds up to
+ * NODE_CAPACITY elements in an array, so iterating touches one node per
+ * NODE_CAPACITY elements instead of one per element, and adding allocates
+ * a node only once per NODE_CAPACITY adds.
+ *
+ * A full node is split in half when inserting into it, and a node that
+ * drops below a quarter full takes in its successor when the two fit in
+ * one node, so nodes stay reasonably dense as bodies are removed.
+ *
+ * @param <T> element type
+ */
+public class UnrolledLinkedList<T> implements List<T> {
+
+    static final int NODE_CAPACITY = 64;
+
+    private class Node {
+        Object[] items = new Object[NODE_CAPACITY];
+        int count;
+        Node next;
+        Node prev;
+    }
+
+    int size;
+    Node head;
+    Node tail;
+
+    // Removed nodes, chained through next, reused by add
+    private Node free;
+    private int freeCount;
+
+    // Set by nodeAt(): position of the index inside the returned node
+    private int offset;
+
+    // Last node reached by index and the index of its first element, so
+    // nearby indexed calls need not walk from an end; null when unknown
+    private Node finger;
+    private int fingerStart;
+
+    /**
+     * Constructor
+     */
+    public UnrolledLinkedList() {
+        size = 0;
+        head = null;
+        tail = null;
+    }
+
+    /**
+     * Take a node from the free list, or allocate one if it is empty.
+     */
+    private Node newNode() {
+        if (free == null) {
+            return new Node();
+        }
+        Node node = free;
+        free = node.next;
+        freeCount--;
+        node.next = null;
+        return node;
+    }
+
+    /**
+     * Put an unlinked node on the free list for reuse.
+     */
+    private void recycle(Node node) {
+        java.util.Arrays.fill(node.items, 0, node.count, null);
+        node.count = 0;
+        node.prev = null;
+        node.next = free;
+        free = node;
+        freeCount++;
+    }
+
+    /**
+     * Link a new empty node after the given one, or at the head if null.
+     */
+    private Node insertNodeAfter(Node node) {
+        Node fresh = newNode();
+        fresh.prev = node;
+        if (node == null) {
+            fresh.next = head;
+            head = fresh;
+        } else {
+            fresh.next = node.next;
+            node.next = fresh;
+        }
+        if (fresh.next != null) {
+            fresh.next.prev = fresh;
+        } else {
+            tail = fresh;
+        }
+        return fresh;
+    }
+
+    /**
+     * Unlink a node from the chain and recycle it.
+     */
+    private void unlink(Node node) {
+        if (node.prev == null) {
+            head = node.next;
+        } else {
+            node.prev.next = node.next;
+        }
+        if (node.next == null) {
+            tail = node.prev;
+        } else {
+            node.next.prev = node.prev;
+        }
+        recycle(node);
+    }
+
+    /**
+     * Find the node holding index, walking from whichever of the two ends
+     * and the finger is closest. The position within the node is left in
+     * offset, and the finger on the returned node.
+     */
+    private Node nodeAt(int index) {
+        Node node = head;
+        int start = 0;
+        int distance = index;
+        if (size - index < distance) {
+            node = tail;
+            start = size - tail.count;
+            distance = size - index;
+        }
+        if (finger != null && Math.abs(index - fingerStart) < distance) {
+            node = finger;
+            start = fingerStart;
+        }
+        while (index >= start + node.count) {
+            start += node.count;
+            node = node.next;
+        }
+        while (index < start) {
+            node = node.prev;
+            start -= node.count;
+        }
+        finger = node;
+        fingerStart = start;
+        offset = index - start;
+        return node;
+    }
+
+    /**
+     * Remove the element at position i of node. The node is dropped if it
+     * becomes empty, or absorbs its successor if it is sparse and both fit.
+     * @return the removed element
+     */
+    @SuppressWarnings("unchecked")
+    private T removeAt(Node node, int i) {
+        T val = (T) node.items[i];
+        System.arraycopy(node.items, i + 1, node.items, i, node.count - i - 1);
+        node.items[--node.count] = null;
+        size--;
+        if (node.count == 0) {
+            unlink(node);
+        } else if (node.count < NODE_CAPACITY / 4 && node.next != null
+                && node.count + node.next.count <= NODE_CAPACITY) {
+            Node next = node.next;
+            System.arraycopy(next.items, 0, node.items, node.count, next.count);
+            node.count += next.count;
+            next.count = 0;
+            unlink(next);
+        }
+        return val;
+    }
+
+    /**
+     * Current number of elements in the list.
+     * @return size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Remove all elements from the list.
+     */
+    public void clear() {
+        Node cur = head;
+        while (cur != null) {
+            Node n = cur.next;
+            recycle(cur);
+            cur = n;
+        }
+        head = null;
+        tail = null;
+        finger = null;
+        size = 0;
+    }
+
+    /**
+     * Add element to the end of the list.
+     * @param element element to add
+     * @return true on success
+     */
+    public boolean add(T element) {
+        if (tail == null || tail.count == NODE_CAPACITY) {
+            insertNodeAfter(tail);
+        }
+        tail.items[tail.count++] = element;
+        ++size;
+        return true;
+    }
+
+    /**
+     * Insert element at the given index.
+     * @param index insertion index
+     * @param element element to insert
+     * @throws Exception on invalid index
+     */
+    public void add(int index, T element) throws Exception {
+        if( index < 0 || index > size) {
+            throw new Exception("Invalid position");
+        }
+        if (index == size) {
+            add(element);
+            return;
+        }
+        Node node = nodeAt(index);
+        int i = offset;
+        if (node.count == NODE_CAPACITY) {
+            // Split: move the upper half into a new node after this one
+            int half = NODE_CAPACITY / 2;
+            Node upper = insertNodeAfter(node);
+            System.arraycopy(node.items, half, upper.items, 0, NODE_CAPACITY - half);
+            java.util.Arrays.fill(node.items, half, NODE_CAPACITY, null);
+            upper.count = NODE_CAPACITY - half;
+            node.count = half;
+            if (i > half) {
+                node = upper;
+                i -= half;
+            }
+        }
+        System.arraycopy(node.items, i, node.items, i + 1, node.count - i);
+        node.items[i] = element;
+        node.count++;
+        size++;
+        finger = node;
+        fingerStart = index - i;
+    }
+
+    /**
+     * Remove and return element at index.
+     * @param index index to remove
+     * @return removed element
+     * @throws Exception on invalid index
+     */
+    public T remove(int index) throws Exception {
+        if( index < 0 || index >= size) {
+            throw new Exception("Invalid position");
+        }
+        Node node = nodeAt(index);
+        int start = index - offset;
+        T val = removeAt(node, offset);
+        // An emptied node has been unlinked; a merged one keeps its start
+        if (node.count > 0) {
+            finger = node;
+            fingerStart = start;
+        } else {
+            finger = null;
+        }
+        return val;
+    }
+
+    /**
+     * Return element at given index.
+     * @param index retrieval index
+     * @return element at index
+     * @throws Exception on invalid index
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int index) throws Exception {
+        if( index < 0 || index >= size) {
+            throw new Exception("Invalid position");
+        }
+        Node node = nodeAt(index);
+        return (T) node.items[offset];
+    }
+
+    /**
+     * Add every element of other to the end of the list, in order.
+     * @param other list to copy from; may be this list
+     * @return true if any element was added
+     */
+    public boolean addAll(List<T> other) {
+        int n = other.size();
+        Iterator<T> it = other.iterator();
+        for (int i = 0; i < n; i++) {
+            add(it.next());
+        }
+        return n > 0;
+    }
+
+    /**
+     * Remove every element the filter accepts, in one pass. Each node is
+     * compacted in place; emptied nodes are unlinked for reuse, and a node
+     * that fits into its predecessor is merged into it. If the filter
+     * throws, the elements it did not get to are kept.
+     * @param filter returns true for elements to remove
+     * @return true if any element was removed
+     */
+    @SuppressWarnings("unchecked")
+    public boolean removeIf(Predicate<? super T> filter) {
+        int before = size;
+        finger = null;
+        Node node = head;
+        while (node != null) {
+            Node next = node.next;
+            int count = node.count, w = 0, r = 0;
+            try {
+                for (; r < count; r++) {
+                    Object element = node.items[r];
+                    if (!filter.test((T) element)) {
+                        node.items[w++] = element;
+                    }
+                }
+            } finally {
+                System.arraycopy(node.items, r, node.items, w, count - r);
+                w += count - r;
+                java.util.Arrays.fill(node.items, w, count, null);
+                size -= count - w;
+                node.count = w;
+            }
+            Node prev = node.prev;
+            if (node.count == 0) {
+                unlink(node);
+            } else if (prev != null && prev.count + node.count <= NODE_CAPACITY) {
+                System.arraycopy(node.items, 0, prev.items, prev.count, node.count);
+                prev.count += node.count;
+                java.util.Arrays.fill(node.items, 0, node.count, null);
+                node.count = 0;
+                unlink(node);
+            }
+            node = next;
+        }
+        return size != before;
+    }
+
+    /**
+     * Make room for at least capacity elements by putting spare nodes on
+     * the free list.
+     * @param capacity number of elements to make room for
+     */
+    public void ensureCapacity(int capacity) {
+        while (size + (long) freeCount * NODE_CAPACITY < capacity) {
+            recycle(new Node());
+        }
+    }
+
+    /**
+     * Drop the spare nodes kept for reuse.
+     */
+    public void trimToSize() {
+        free = null;
+        freeCount = 0;
+    }
+
+    /**
+     * Return an iterator for this list.
+     * @return iterator
+     */
+    public Iterator<T> iterator() {
+        return new ListIterator();
+    }
+
+    /**
+     * Return a Spliterator that splits at node boundaries. A split walks
+     * one node per NODE_CAPACITY elements to find the middle and copies
+     * nothing.
+     * @return spliterator
+     */
+    public Spliterator<T> spliterator() {
+        return new NodeSpliterator(head, 0, size);
+    }
+
+    private class NodeSpliterator implements Spliterator<T> {
+        // The next element is node.items[index]; remaining elements follow it
+        private Node node;
+        private int index;
+        private int remaining;
+
+        NodeSpliterator(Node node, int index, int remaining) {
+            this.node = node;
+            this.index = index;
+            this.remaining = remaining;
+        }
+
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (remaining <= 0) return false;
+            while (index >= node.count) {
+                node = node.next;
+                index = 0;
+            }
+            remaining--;
+            action.accept((T) node.items[index++]);
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        public void forEachRemaining(Consumer<? super T> action) {
+            while (remaining > 0) {
+                int end = Math.min(node.count, index + remaining);
+                for (int i = index; i < end; i++) {
+                    action.accept((T) node.items[i]);
+                }
+                remaining -= end - index;
+                index = end;
+                if (remaining > 0) {
+                    node = node.next;
+                    index = 0;
+                }
+            }
+        }
+
+        public Spliterator<T> trySplit() {
+            if (remaining < 2 * NODE_CAPACITY) return null;
+            // Hand off whole nodes up to about half of the remaining elements
+            Node last = node;
+            int taken = last.count - index;
+            while (taken < remaining / 2) {
+                last = last.next;
+                taken += last.count;
+            }
+            NodeSpliterator prefix = new NodeSpliterator(node, index, taken);
+            node = last.next;
+            index = 0;
+            remaining -= taken;
+            return prefix;
+        }
+
+        public long estimateSize() {
+            return remaining;
+        }
+
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED;
+        }
+    }
+
+    private class ListIterator implements Iterator<T> {
+        // Next element is node.items[index]
+        private Node node = head;
+        private int index = 0;
+        private boolean canRemove = false;
+
+        public boolean hasNext() {
+            while (node != null && index >= node.count) {
+                node = node.next;
+                index = 0;
+            }
+            return node != null;
+        }
+
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if (!hasNext()) throw new RuntimeException("No more elements");
+            canRemove = true;
+            return (T) node.items[index++];
+        }
+
+        public void remove() {
+            if (!canRemove) throw new RuntimeException("No element to remove");
+            canRemove = false;
+            // The last element returned is node.items[index - 1]
+            Node current = node;
+            index--;
+            if (current.count == 1) {
+                // The node is about to be unlinked; continue from its successor
+                node = current.next;
+                index = 0;
+            }
+            finger = null;
+            removeAt(current, index);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.util.Properties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Every list mode must produce the same run for the same seed: the same
+ * bodies, in the same order, with the same state, on every tick. The
+ * config turns on star gravity through Barnes-Hut and collisions, with a
+ * spawn on every tick so culls and merges are frequent.
+ */
+public class ModeEquivalenceTest {
+
+    static final String[] MODES =
+            {"arraylist", "single", "double", "dummyhead", "unrolled", "ring", "store", "offheap"};
+
+    static final int TICKS = 1500;
+
+    static Properties config(String list) {
+        Properties prop = new Properties();
+        prop.setProperty("list", list);
+        prop.setProperty("seed", "42");
+        prop.setProperty("gen_x", "1.0");
+        prop.setProperty("gen_y", "1.0");
+        prop.setProperty("gravity", "star");
+        prop.setProperty("gravity_solver", "barneshut");
+        prop.setProperty("theta", "0.5");
+        prop.setProperty("distance_scale", "3E5");
+        prop.setProperty("collisions", "on");
+        prop.setProperty("step_kernel", "scalar");
+        return prop;
+    }
+
+    /**
+     * Every body's exact state, in iteration order.
+     */
+    static String state(SimulationEngine engine) {
+        StringBuilder sb = new StringBuilder();
+        Iterator<Body> it = engine.iterator();
+        while (it.hasNext()) {
+            Body b = it.next();
+            sb.append(b.getPreciseX()).append(' ').append(b.getPreciseY()).append(' ')
+                    .append(b.getPreciseVx()).append(' ').append(b.getPreciseVy()).append(' ')
+                    .append(b.getSize()).append(' ').append(b.getMass()).append(' ')
+                    .append(b.isStar()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    static void assertSameRun(SimulationEngine expected, SimulationEngine actual, String mode, int ticks) {
+        for (int t = 0; t < ticks; t++) {
+            expected.step();
+            actual.step();
+            assertEquals(state(expected), state(actual), mode + " differs at tick " + expected.getTick());
+        }
+        assertEquals(expected.getTotalMerges(), actual.getTotalMerges(), mode + " merges");
+        assertEquals(expected.getTotalAbsorbed(), actual.getTotalAbsorbed(), mode + " absorbed");
+    }
+
+    @Test
+    public void everyModeMatchesArrayList() {
+        for (String mode : MODES) {
+            assertSameRun(new SimulationEngine(config("arraylist")),
+                    new SimulationEngine(config(mode)), mode, TICKS);
+        }
+    }
+
+    @Test
+    public void parallelStepsMatchSequential() {
+        for (String mode : new String[] {"arraylist", "store", "offheap"}) {
+            Properties parallel = config(mode);
+            parallel.setProperty("threads", "3");
+            assertSameRun(new SimulationEngine(config("arraylist")),
+                    new SimulationEngine(parallel), mode + " threads=3", TICKS);
+        }
+    }
+
+    @Test
+    public void wheelCullingMatchesScan() {
+        for (String mode : new String[] {"arraylist", "single", "double", "unrolled"}) {
+            Properties scan = config(mode);
+            scan.setProperty("gravity", "off");
+            Properties wheel = config(mode);
+            wheel.setProperty("gravity", "off");
+            wheel.setProperty("cull", "wheel");
+            assertSameRun(new SimulationEngine(scan), new SimulationEngine(wheel), mode + " cull=wheel", TICKS);
+            wheel.setProperty("threads", "3");
+            assertSameRun(new SimulationEngine(scan), new SimulationEngine(wheel),
+                    mode + " cull=wheel threads=3", TICKS);
+        }
+    }
+
+    @Test
+    public void checkpointRestoresIntoAnyMode(@TempDir File dir) throws Exception {
+        SimulationEngine source = new SimulationEngine(config("arraylist"));
+        source.step(500);
+        String path = new File(dir, "run.ckpt").getPath();
+        Checkpoint.write(source, path);
+        for (String mode : MODES) {
+            SimulationEngine expected = new SimulationEngine(config("single"));
+            SimulationEngine actual = new SimulationEngine(config(mode));
+            Checkpoint.read(expected, path);
+            Checkpoint.read(actual, path);
+            assertSameRun(expected, actual, mode + " after restore", 500);
+        }
+    }
+
+    @Test
+    public void checkpointContinuesTheRun(@TempDir File dir) throws Exception {
+        SimulationEngine source = new SimulationEngine(config("store"));
+        source.step(500);
+        String path = new File(dir, "run.ckpt").getPath();
+        Checkpoint.write(source, path);
+        SimulationEngine restored = new SimulationEngine(config("store"));
+        Checkpoint.read(restored, path);
+        assertEquals(source.getRandomDraws(), restored.getRandomDraws(), "random draws");
+        assertSameRun(source, restored, "restored", 500);
+    }
+}
@@ -0,0 +1,81 @@
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Move-and-cull loop on the Vector API. Positions are advanced a full
+ * vector of bodies at a time, and the four bounds tests give a cull mask
+ * per lane (with star lanes cleared). Survivors are then packed by
+ * walking the set bits of the mask: every run of survivors between two
+ * culled bodies is moved down with one System.arraycopy per column, so a
+ * tick that culls nothing moves nothing.
+ *
+ * Requires --add-modules jdk.incubator.vector at compile and run time.
+ */
+public class VectorStepKernel implements StepKernel {
+
+    static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    public int step(double[] x, double[] y, double[] vx, double[] vy, int[] size, double[] mass,
+                    boolean[] star, int lo, int hi, int minX, int minY, int maxX, int maxY) {
+        int lanes = SPECIES.length();
+        // Survivors from run up to the current body still have to move to w
+        int w = lo;
+        int run = lo;
+        int i = lo;
+        int bound = lo + SPECIES.loopBound(hi - lo);
+        for (; i < bound; i += lanes) {
+            DoubleVector bx = DoubleVector.fromArray(SPECIES, x, i).add(DoubleVector.fromArray(SPECIES, vx, i));
+            DoubleVector by = DoubleVector.fromArray(SPECIES, y, i).add(DoubleVector.fromArray(SPECIES, vy, i));
+            bx.intoArray(x, i);
+            by.intoArray(y, i);
+            VectorMask<Double> out = bx.compare(VectorOperators.LT, minX)
+                    .or(bx.compare(VectorOperators.GT, maxX))
+                    .or(by.compare(VectorOperators.LT, minY))
+                    .or(by.compare(VectorOperators.GT, maxY))
+                    .andNot(VectorMask.fromArray(SPECIES, star, i));
+            long bits = out.toLong();
+            while (bits != 0) {
+                int culled = i + Long.numberOfTrailingZeros(bits);
+                w = pack(x, y, vx, vy, size, mass, star, run, culled, w);
+                run = culled + 1;
+                bits &= bits - 1;
+            }
+        }
+        for (; i < hi; i++) {
+            double bx = x[i] + vx[i];
+            double by = y[i] + vy[i];
+            x[i] = bx;
+            y[i] = by;
+            if (!star[i] && (bx < minX || bx > maxX || by < minY || by > maxY)) {
+                w = pack(x, y, vx, vy, size, mass, star, run, i, w);
+                run = i + 1;
+            }
+        }
+        return pack(x, y, vx, vy, size, mass, star, run, hi, w);
+    }
+
+    /**
+     * Move the survivors in [from, to) down to w in every column.
+     * @return index after the moved survivors
+     */
+    private static int pack(double[] x, double[] y, double[] vx, double[] vy, int[] size, double[] mass,
+                            boolean[] star, int from, int to, int w) {
+        int n = to - from;
+        if (n > 0 && w != from) {
+            System.arraycopy(x, from, x, w, n);
+            System.arraycopy(y, from, y, w, n);
+            System.arraycopy(vx, from, vx, w, n);
+            System.arraycopy(vy, from, vy, w, n);
+            System.arraycopy(size, from, size, w, n);
+            System.arraycopy(mass, from, mass, w, n);
+            System.arraycopy(star, from, star, w, n);
+        }
+        return w + n;
+    }
+
+    public String getName() {
+        return "vector";
+    }
+}